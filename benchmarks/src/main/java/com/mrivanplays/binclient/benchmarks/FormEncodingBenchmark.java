@@ -0,0 +1,114 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.benchmarks;
+
+import com.mrivanplays.binclient.request.PasteBodies;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.FormBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the form encoding of ghostbin pastes with {@link PasteBodies#formEncoded(Map, String, RequestBody)},
+ * with okhttp's {@link FormBody} as baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FormEncodingBenchmark {
+
+    @Param({"1024", "65536", "1048576", "52428800"})
+    public int size;
+
+    private String code;
+    private Map<String, String> fields;
+    private BufferedSink sink;
+
+    @Setup
+    public void setup() {
+        code = Payloads.text(size);
+        fields = new LinkedHashMap<>();
+        fields.put("lang", "text");
+        fields.put("expire", "1d");
+        sink = Okio.buffer(new Sink() {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                source.skip(byteCount);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public Timeout timeout() {
+                return Timeout.NONE;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @Benchmark
+    public BufferedSink pasteBodies() throws IOException {
+        PasteBodies.formEncoded(fields, "text", RequestBody.create(null, code)).writeTo(sink);
+        return sink.emit();
+    }
+
+    @Benchmark
+    public BufferedSink formBody() throws IOException {
+        new FormBody.Builder()
+                .add("lang", "text")
+                .add("expire", "1d")
+                .add("text", code)
+                .build()
+                .writeTo(sink);
+        return sink.emit();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.benchmarks;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.servers.IvanBinServer;
+import com.mrivanplays.binclient.servers.SourcebinServer;
+import com.mrivanplays.binclient.service.PasteService;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * Creates servers, whose http client answers every request with a fixed in-memory response instead of going to the
+ * network, so the benchmarks measure BinClient rather than the network.
+ */
+final class InMemoryServers {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private InMemoryServers() {
+    }
+
+    /**
+     * Creates the specified server, answering every request with the specified response body
+     */
+    static PasteService<?> create(String server, byte[] responseBody) {
+        return create(server, responseBody, JsonCodec.defaultCodec());
+    }
+
+    /**
+     * Creates the specified server, reading responses with the specified codec
+     */
+    static PasteService<?> create(String server, byte[] responseBody, JsonCodec codec) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    // drain the request body, as the network would
+                    if (chain.request().body() != null) {
+                        chain.request().body().writeTo(new Buffer());
+                    }
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(JSON, responseBody))
+                            .build();
+                })
+                .build();
+        switch (server) {
+            case "hastebin":
+                HasteServer hasteServer = new HasteServer(client, "http://localhost/");
+                hasteServer.setJsonCodec(codec);
+                return hasteServer;
+            case "ghostbin":
+                GhostbinServer ghostbinServer = new GhostbinServer(client, "1d", "http://localhost/");
+                ghostbinServer.setJsonCodec(codec);
+                return ghostbinServer;
+            case "ivanbin":
+                IvanBinServer ivanBinServer = new IvanBinServer(client);
+                ivanBinServer.setJsonCodec(codec);
+                return ivanBinServer;
+            case "sourcebin":
+                SourcebinServer sourcebinServer = new SourcebinServer(client);
+                sourcebinServer.setJsonCodec(codec);
+                return sourcebinServer;
+            default:
+                throw new IllegalArgumentException("Unknown server " + server);
+        }
+    }
+}
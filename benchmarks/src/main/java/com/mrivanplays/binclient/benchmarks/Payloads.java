@@ -0,0 +1,116 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.benchmarks;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates paste bodies and the responses of every server, containing them.
+ */
+final class Payloads {
+
+    private static final String[] WORDS = {
+            "public", "static", "void", "main(String[]", "args)", "{", "}", "System.out.println(\"Hello,", "world!\");",
+            "int", "i", "=", "0;", "if", "(a", "&&", "b)", "return", "null;", "// comment", "x += 1;", "key=value&",
+            "\"quoted\"", "back\\slash", "\ttab", "café", "über", "naïve", "☃"
+    };
+
+    private Payloads() {
+    }
+
+    /**
+     * Generates source code like text, spanning about the specified amount of utf-8 bytes
+     */
+    static String text(int bytes) {
+        Random random = new Random(bytes);
+        StringBuilder builder = new StringBuilder(bytes);
+        int lineLength = 0;
+        int size = 0;
+        while (size < bytes) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(word);
+            size += word.getBytes(StandardCharsets.UTF_8).length;
+            lineLength += word.length();
+            if (lineLength > 80) {
+                builder.append('\n');
+                lineLength = 0;
+            } else {
+                builder.append(' ');
+            }
+            size++;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the body of the retrieval response of the specified server, containing the specified paste body
+     */
+    static byte[] retrieveResponse(String server, String body) {
+        JSONObject object = new JSONObject();
+        switch (server) {
+            case "hastebin":
+                return body.getBytes(StandardCharsets.UTF_8);
+            case "ghostbin":
+                object.put("id", "abcdef");
+                object.put("body", body);
+                object.put("language", new JSONObject().put("name", "Plain Text").put("id", "text"));
+                object.put("expiration", "2019-11-02T12:00:00Z");
+                object.put("encrypted", false);
+                break;
+            case "ivanbin":
+                object.put("binId", "abcdef");
+                object.put("body", body);
+                object.put("createdAt", "Sat, 2 Nov 2019 12:00:00 GMT");
+                object.put("expiresAt", "Sat, 9 Nov 2019 12:00:00 GMT");
+                break;
+            case "sourcebin":
+                object.put("key", "abcdef");
+                object.put("code", body);
+                object.put("created", "2019-11-02T12:00:00.000Z");
+                object.put("id", "owner");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown server " + server);
+        }
+        return object.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the body of the creation response of the specified server
+     */
+    static byte[] createResponse(String server) {
+        switch (server) {
+            case "hastebin":
+                return "{\"key\":\"abcdef\"}".getBytes(StandardCharsets.UTF_8);
+            case "ivanbin":
+                return "{\"binId\":\"abcdef\"}".getBytes(StandardCharsets.UTF_8);
+            case "sourcebin":
+                return "{\"key\":\"abcdef\"}".getBytes(StandardCharsets.UTF_8);
+            default:
+                return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.benchmarks;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks retrieving a paste of every server, from an in-memory response. Covers the json parsing of ghostbin,
+ * ivanbin and sourcebin, and the line-by-line rebuild of hastebin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RetrieveBenchmark {
+
+    @Param({"hastebin", "ghostbin", "ivanbin", "sourcebin"})
+    public String server;
+
+    @Param({"1024", "65536", "1048576", "52428800"})
+    public int size;
+
+    @Param({"org.json", "streaming"})
+    public String codec;
+
+    private PasteService<?> service;
+
+    @Setup
+    public void setup() {
+        service = InMemoryServers.create(server, Payloads.retrieveResponse(server, Payloads.text(size)),
+                codec.equals("streaming") ? JsonCodec.streaming() : JsonCodec.orgJson());
+    }
+
+    @Benchmark
+    public Paste retrievePaste() {
+        return service.retrievePaste("abcdef").sync();
+    }
+
+    @Benchmark
+    public long retrievePasteStream() {
+        return service.retrievePasteStream("abcdef", new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }).sync();
+    }
+}
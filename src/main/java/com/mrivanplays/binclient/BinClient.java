@@ -0,0 +1,424 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.request.Compression;
+import com.mrivanplays.binclient.request.CompressionInterceptor;
+import com.mrivanplays.binclient.request.RequestListener;
+import com.mrivanplays.binclient.request.TimingEventListener;
+import com.mrivanplays.binclient.request.VirtualThreads;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.servers.IvanBinServer;
+import com.mrivanplays.binclient.servers.SourcebinServer;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServices;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Represents the entry point of BinClient. It owns a single {@link OkHttpClient} (and thus a single connection pool
+ * and dispatcher) and hands out server instances built on top of it, so connections are reused and concurrency limits
+ * are applied across every bin server.
+ */
+public final class BinClient {
+
+    private final OkHttpClient client;
+    private final boolean ownsClient;
+    private final boolean ownsExecutor;
+    private final HasteServer hasteServer;
+    private final IvanBinServer ivanBinServer;
+    private final SourcebinServer sourcebinServer;
+    private final RequestListener requestListener;
+    private final JsonCodec jsonCodec;
+    private final Compression compression;
+
+    public BinClient() {
+        this(sharedHttpClient());
+    }
+
+    public BinClient(OkHttpClient client) {
+        this(client, new Builder(), false, false);
+    }
+
+    private BinClient(OkHttpClient client, Builder builder, boolean ownsClient, boolean ownsExecutor) {
+        this.client = client;
+        this.ownsClient = ownsClient;
+        this.ownsExecutor = ownsExecutor;
+        this.requestListener = builder.requestListener;
+        this.jsonCodec = builder.jsonCodec;
+        this.compression = builder.compression;
+        this.hasteServer = haste("https://hasteb.in/");
+        this.ivanBinServer = configure(new IvanBinServer(client));
+        this.sourcebinServer = configure(new SourcebinServer(client));
+    }
+
+    /**
+     * Creates a new builder for configuring the shared http client.
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the process wide {@link OkHttpClient}, used by the convenience constructors of every server.
+     *
+     * @return shared http client
+     */
+    public static OkHttpClient sharedHttpClient() {
+        return SharedClientHolder.CLIENT;
+    }
+
+    /**
+     * Returns the http client every server, handed out by this client, is built on.
+     *
+     * @return http client
+     */
+    public OkHttpClient getHttpClient() {
+        return client;
+    }
+
+    /**
+     * Returns the haste server, running on <a href="https://hasteb.in">hasteb.in</a>
+     *
+     * @return haste server
+     */
+    public HasteServer haste() {
+        return hasteServer;
+    }
+
+    /**
+     * Creates a new haste server, running on the specified base url
+     *
+     * @param baseUrl base url
+     * @return haste server
+     */
+    public HasteServer haste(String baseUrl) {
+        return configure(new HasteServer(client, baseUrl));
+    }
+
+    /**
+     * Creates a new ghostbin server, running on <a href="https://paste.menudocs.org/">paste.menudocs.org</a>
+     *
+     * @param defaultExpiryTime default expiry time of the pastes
+     * @return ghostbin server
+     */
+    public GhostbinServer ghostbin(String defaultExpiryTime) {
+        return ghostbin(defaultExpiryTime, "https://paste.menudocs.org/");
+    }
+
+    /**
+     * Creates a new ghostbin server, running on the specified base url
+     *
+     * @param defaultExpiryTime default expiry time of the pastes
+     * @param baseUrl           base url
+     * @return ghostbin server
+     */
+    public GhostbinServer ghostbin(String defaultExpiryTime, String baseUrl) {
+        return configure(new GhostbinServer(client, defaultExpiryTime, baseUrl));
+    }
+
+    /**
+     * Returns the ivanbin server
+     *
+     * @return ivanbin server
+     */
+    public IvanBinServer ivanBin() {
+        return ivanBinServer;
+    }
+
+    /**
+     * Returns the sourcebin server
+     *
+     * @return sourcebin server
+     */
+    public SourcebinServer sourcebin() {
+        return sourcebinServer;
+    }
+
+    /**
+     * Creates the paste service with the specified name, built on this client's http client. Besides the built-in
+     * servers, every {@link com.mrivanplays.binclient.service.PasteServiceProvider} registered through
+     * {@link java.util.ServiceLoader} can be looked up. The service is configured like the servers of this client.
+     *
+     * @param name name, e.g. <code>hastebin</code>
+     * @return paste service
+     * @throws IllegalArgumentException if no provider with that name is registered
+     */
+    public PasteService<?> service(String name) {
+        return configure(PasteServices.create(name, client));
+    }
+
+    private <S extends PasteService<?>> S configure(S service) {
+        service.setRequestListener(requestListener);
+        service.setJsonCodec(jsonCodec);
+        service.setCompression(compression);
+        return service;
+    }
+
+    /**
+     * Evicts all idle connections and shuts down the dispatcher's executor, if this client owns its http client (it
+     * was created by {@link Builder#build()}). The {@link #sharedHttpClient()} and http clients passed to the
+     * constructor are left untouched, as others may still use them, and so is an executor passed to
+     * {@link Builder#executor(ExecutorService)}.
+     */
+    public void shutdown() {
+        if (!ownsClient) {
+            return;
+        }
+        if (ownsExecutor) {
+            client.dispatcher().executorService().shutdown();
+        }
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Represents a builder of {@link BinClient}
+     */
+    public static final class Builder {
+
+        private int maxIdleConnections = 5;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private int maxRequests = 64;
+        private int maxRequestsPerHost = 5;
+        private boolean preferHttp2 = true;
+        private ExecutorService executor;
+        private boolean virtualThreads;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(10);
+        private Duration writeTimeout = Duration.ofSeconds(10);
+        private RequestListener requestListener;
+        private JsonCodec jsonCodec = JsonCodec.defaultCodec();
+        private Compression compression;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum idle connections, kept in the connection pool
+         *
+         * @param maxIdleConnections max idle connections
+         * @return this instance for chaining
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections < 0: " + maxIdleConnections);
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Sets the time an idle connection is kept alive in the connection pool
+         *
+         * @param keepAlive keep alive duration
+         * @return this instance for chaining
+         */
+        public Builder keepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of requests, executed concurrently
+         *
+         * @param maxRequests max requests
+         * @return this instance for chaining
+         */
+        public Builder maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of requests, executed concurrently against a single host
+         *
+         * @param maxRequestsPerHost max requests per host
+         * @return this instance for chaining
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets whenever HTTP/2 should be negotiated when the server supports it. If <code>false</code>, only
+         * HTTP/1.1 is used.
+         *
+         * @param preferHttp2 prefer http 2
+         * @return this instance for chaining
+         */
+        public Builder preferHttp2(boolean preferHttp2) {
+            this.preferHttp2 = preferHttp2;
+            return this;
+        }
+
+        /**
+         * Sets the executor, asynchronous requests are ran on
+         *
+         * @param executor executor
+         * @return this instance for chaining
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets whenever asynchronous requests are ran on virtual threads, if available (Java 21 and later), see
+         * {@link VirtualThreads}. Ignored if an {@link #executor(ExecutorService)} is set. As virtual threads are
+         * cheap, {@link #maxRequests(int)} and {@link #maxRequestsPerHost(int)} can be raised accordingly.
+         *
+         * @param virtualThreads virtual threads
+         * @return this instance for chaining
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout
+         *
+         * @param connectTimeout connect timeout
+         * @return this instance for chaining
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the read timeout
+         *
+         * @param readTimeout read timeout
+         * @return this instance for chaining
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the write timeout
+         *
+         * @param writeTimeout write timeout
+         * @return this instance for chaining
+         */
+        public Builder writeTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the listener, notified with the metrics of every request made by the servers this client hands out
+         *
+         * @param requestListener request listener
+         * @return this instance for chaining
+         */
+        public Builder requestListener(RequestListener requestListener) {
+            this.requestListener = requestListener;
+            return this;
+        }
+
+        /**
+         * Sets the codec, responses of the servers this client hands out are read with. Defaults to
+         * {@link JsonCodec#defaultCodec()}.
+         *
+         * @param jsonCodec json codec
+         * @return this instance for chaining
+         */
+        public Builder jsonCodec(JsonCodec jsonCodec) {
+            this.jsonCodec = Objects.requireNonNull(jsonCodec, "jsonCodec");
+            return this;
+        }
+
+        /**
+         * Sets the compression of requests made by the servers this client hands out. <code>null</code>, the
+         * default, disables compression.
+         *
+         * @param compression compression, e.g. {@link Compression#gzip()}
+         * @return this instance for chaining
+         */
+        public Builder compression(Compression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Builds the http client only, without wrapping it into a {@link BinClient}
+         *
+         * @return http client
+         */
+        public OkHttpClient buildHttpClient() {
+            ExecutorService dispatcherExecutor = executor != null
+                    ? executor
+                    : virtualThreads ? VirtualThreads.newExecutor() : null;
+            Dispatcher dispatcher = dispatcherExecutor != null ? new Dispatcher(dispatcherExecutor) : new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            return new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                    .protocols(preferHttp2
+                            ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                            : Collections.singletonList(Protocol.HTTP_1_1))
+                    .connectTimeout(connectTimeout)
+                    .readTimeout(readTimeout)
+                    .writeTimeout(writeTimeout)
+                    .eventListenerFactory(TimingEventListener.FACTORY)
+                    .addInterceptor(CompressionInterceptor.INSTANCE)
+                    .build();
+        }
+
+        /**
+         * Builds the client
+         *
+         * @return bin client
+         */
+        public BinClient build() {
+            return new BinClient(buildHttpClient(), this, true, executor == null);
+        }
+    }
+
+    private static final class SharedClientHolder {
+        private static final OkHttpClient CLIENT = new OkHttpClient.Builder()
+                .eventListenerFactory(TimingEventListener.FACTORY)
+                .addInterceptor(CompressionInterceptor.INSTANCE)
+                .build();
+    }
+}
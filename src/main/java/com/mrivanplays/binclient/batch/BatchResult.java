@@ -0,0 +1,81 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the result of a batch of requests.
+ *
+ * @param <T> type of value, retrieved by each request
+ */
+public final class BatchResult<T> {
+
+    private final List<T> values;
+    private final Map<Integer, Throwable> failures;
+
+    BatchResult(List<T> values, Map<Integer, Throwable> failures) {
+        this.values = Collections.unmodifiableList(values);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Returns the values, in the order of the inputs they were retrieved for. Inputs, whose request failed, have a
+     * <code>null</code> value.
+     *
+     * @return values
+     */
+    public List<T> getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the value, retrieved for the input at the specified index.
+     *
+     * @param index input index
+     * @return value, or <code>null</code> if the request failed
+     */
+    public T get(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Returns the failures, keyed by the index of the input whose request failed.
+     *
+     * @return failures
+     */
+    public Map<Integer, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns whenever every request of the batch succeeded.
+     *
+     * @return <code>true</code> if no request failed, <code>false</code> otherwise
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+}
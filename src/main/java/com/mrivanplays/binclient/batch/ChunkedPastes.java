@@ -0,0 +1,312 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.request.RequestException;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Creates pastes larger than a server accepts by splitting them into chunks, which are uploaded concurrently, and a
+ * manifest paste listing the chunk ids, the id of which is returned. Bodies fitting into a single chunk are uploaded
+ * as is. Retrieving a manifest fetches the chunks concurrently and reassembles them in order as a stream.
+ * <p>
+ * The manifest carries a SHA-256 checksum over the total size and the chunk ids. A paste is only expanded if its
+ * checksum matches, so that a regular paste which happens to look like a manifest is returned as is.
+ * <p>
+ * Chunks are split between UTF-8 encoded characters, as servers store pastes as text. The chunk size should leave
+ * room for the encoding overhead of servers sending the body as json or form (e.g. ghostbin, sourcebin).
+ */
+public final class ChunkedPastes {
+
+    private static final String MANIFEST_HEADER = "binclient-chunked-paste v1\n";
+    private static final byte[] MANIFEST_HEADER_BYTES = MANIFEST_HEADER.getBytes(StandardCharsets.UTF_8);
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    private final PasteService<?> service;
+    private final int chunkSize;
+    private final int concurrency;
+
+    /**
+     * Creates a new instance, splitting bodies into chunks of 256 KB and keeping at most 4 requests in flight.
+     *
+     * @param service paste service
+     */
+    public ChunkedPastes(PasteService<?> service) {
+        this(service, DEFAULT_CHUNK_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param service     paste service
+     * @param chunkSize   maximum size of a chunk in bytes, e.g. the server's size limit
+     * @param concurrency maximum amount of requests in flight, both when creating and retrieving
+     */
+    public ChunkedPastes(PasteService<?> service, int chunkSize, int concurrency) {
+        if (chunkSize < 4) {
+            // a chunk has to fit the longest utf-8 encoded character
+            throw new IllegalArgumentException("chunkSize < 4: " + chunkSize);
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency < 1: " + concurrency);
+        }
+        this.service = service;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Creates a paste, chunked if the body is larger than the chunk size.
+     *
+     * @param body body
+     * @return future, completed with the id of the paste, or of the manifest if chunked
+     */
+    public CompletableFuture<String> createPaste(String body) {
+        return createPaste(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a paste, chunked if the body is larger than the chunk size. The body has to be UTF-8 encoded text.
+     *
+     * @param body body
+     * @return future, completed with the id of the paste, or of the manifest if chunked
+     */
+    public CompletableFuture<String> createPaste(byte[] body) {
+        if (body.length <= chunkSize) {
+            return service.createPaste(ByteBuffer.wrap(body)).future();
+        }
+        return PasteBatch.run(split(body), chunk -> service.createPaste(chunk).future(), concurrency)
+                .thenCompose(result -> {
+                    if (!result.isSuccessful()) {
+                        CompletableFuture<String> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(new RequestException("Could not create "
+                                + result.getFailures().size() + " of " + result.getValues().size() + " chunks",
+                                result.getFailures().values().iterator().next()));
+                        return failed;
+                    }
+                    StringBuilder content = new StringBuilder().append(body.length).append('\n');
+                    for (String id : result.getValues()) {
+                        content.append(id).append('\n');
+                    }
+                    String manifest = MANIFEST_HEADER + checksum(body.length, result.getValues()) + '\n' + content;
+                    return service.createPaste(manifest).future();
+                });
+    }
+
+    /**
+     * Retrieves a paste, created by {@link #createPaste(String)}. If it is a manifest, the returned stream reads the
+     * chunks in order, fetching up to the configured concurrency of them ahead; otherwise, including when the
+     * manifest's checksum doesn't match, it reads the paste's body. Closing the stream cancels the chunks still being
+     * fetched.
+     *
+     * @param id id of the paste or manifest
+     * @return future, completed with the stream once the paste or manifest was retrieved
+     */
+    public CompletableFuture<InputStream> retrievePaste(String id) {
+        return service.retrievePaste(id).future().thenApply(paste -> {
+            ByteBuffer body = paste.getBodyBytes();
+            if (isManifest(body)) {
+                ChunkInputStream chunks = readManifest(body.duplicate());
+                if (chunks != null) {
+                    return chunks;
+                }
+            }
+            return new ChunkInputStream(body, new ArrayList<>(), -1);
+        });
+    }
+
+    private ChunkInputStream readManifest(ByteBuffer body) {
+        body.position(body.position() + MANIFEST_HEADER_BYTES.length);
+        String[] lines = StandardCharsets.UTF_8.decode(body).toString().trim().split("\n");
+        if (lines.length < 3) {
+            return null;
+        }
+        long size;
+        try {
+            size = Long.parseLong(lines[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        List<String> ids = Arrays.asList(lines).subList(2, lines.length);
+        if (!lines[0].equals(checksum(size, ids))) {
+            return null;
+        }
+        return new ChunkInputStream(null, ids, size);
+    }
+
+    private List<ByteBuffer> split(byte[] body) {
+        List<ByteBuffer> chunks = new ArrayList<>(body.length / chunkSize + 1);
+        int start = 0;
+        while (start < body.length) {
+            int end = Math.min(start + chunkSize, body.length);
+            // don't end a chunk in the middle of a character, i.e. before a continuation byte
+            while (end < body.length && end > start && (body[end] & 0xC0) == 0x80) {
+                end--;
+            }
+            if (end == start) {
+                // not utf-8
+                end = Math.min(start + chunkSize, body.length);
+            }
+            chunks.add(ByteBuffer.wrap(body, start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static String checksum(long size, List<String> ids) {
+        byte[] digest;
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(Long.toString(size).getBytes(StandardCharsets.UTF_8));
+            for (String id : ids) {
+                sha256.update((byte) '\n');
+                sha256.update(id.getBytes(StandardCharsets.UTF_8));
+            }
+            digest = sha256.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static boolean isManifest(ByteBuffer body) {
+        if (body.remaining() < MANIFEST_HEADER_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < MANIFEST_HEADER_BYTES.length; i++) {
+            if (body.get(body.position() + i) != MANIFEST_HEADER_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the chunks of a paste in order, keeping the next ones being fetched.
+     */
+    private final class ChunkInputStream extends InputStream {
+
+        private final Iterator<String> ids;
+        private final Deque<CompletableFuture<? extends Paste>> window = new ArrayDeque<>();
+        private final long size;
+        private ByteBuffer current;
+        private long position;
+        private boolean closed;
+
+        ChunkInputStream(ByteBuffer current, List<String> ids, long size) {
+            this.current = current;
+            this.ids = ids.iterator();
+            this.size = size;
+            fill();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!advance()) {
+                return -1;
+            }
+            position++;
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int read = Math.min(len, current.remaining());
+            current.get(b, off, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.remaining();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            window.forEach(chunk -> chunk.cancel(true));
+            window.clear();
+        }
+
+        private void fill() {
+            while (window.size() < concurrency && ids.hasNext()) {
+                window.add(service.retrievePaste(ids.next()).future());
+            }
+        }
+
+        private boolean advance() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (current == null || !current.hasRemaining()) {
+                CompletableFuture<? extends Paste> next = window.poll();
+                if (next == null) {
+                    if (size >= 0 && position != size) {
+                        throw new IOException("Chunked paste is " + position + " bytes long, expected " + size);
+                    }
+                    return false;
+                }
+                fill();
+                try {
+                    current = next.get().getBodyBytes();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while retrieving a chunk");
+                } catch (ExecutionException e) {
+                    throw new IOException("Could not retrieve a chunk", e.getCause());
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Retrieves pastes of a single server, making concurrent retrievals of the same id share one request. Every caller
+ * receives the same parsed paste.
+ *
+ * @param <P> paste type
+ */
+public final class CoalescingRetriever<P extends Paste> {
+
+    private static final int DEFAULT_CONCURRENCY = 16;
+
+    private final Function<String, RestRequest<P>> loader;
+    private final Map<String, CompletableFuture<P>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new retriever
+     *
+     * @param loader function, creating the request which retrieves a paste, e.g. <code>server::retrievePaste</code>
+     */
+    public CoalescingRetriever(Function<String, RestRequest<P>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Creates a new retriever, retrieving pastes from the specified service
+     *
+     * @param service paste service
+     */
+    public CoalescingRetriever(PasteService<P> service) {
+        this(service::retrievePaste);
+    }
+
+    /**
+     * Retrieves the paste with the specified id. If it is already being retrieved, no new request is made and the
+     * result of the in-flight one is shared. Cancelling the returned future only affects the caller.
+     *
+     * @param id paste id
+     * @return future, completed with the paste
+     */
+    public CompletableFuture<P> retrieve(String id) {
+        CompletableFuture<P> created = new CompletableFuture<>();
+        CompletableFuture<P> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing.thenApply(Function.identity());
+        }
+        try {
+            loader.apply(id).future().whenComplete((paste, error) -> {
+                inFlight.remove(id, created);
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(paste);
+                }
+            });
+        } catch (Throwable error) {
+            inFlight.remove(id, created);
+            created.completeExceptionally(error);
+        }
+        return created.thenApply(Function.identity());
+    }
+
+    /**
+     * Retrieves the pastes with the specified ids. Duplicate ids are retrieved only once.
+     *
+     * @param ids paste ids
+     * @return future, completed with the pastes in the order of the ids
+     */
+    public CompletableFuture<BatchResult<P>> retrievePastes(Collection<String> ids) {
+        return retrievePastes(ids, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Retrieves the pastes with the specified ids, keeping at most <code>concurrency</code> requests in flight.
+     * Duplicate ids are retrieved only once.
+     *
+     * @param ids         paste ids
+     * @param concurrency maximum amount of requests in flight
+     * @return future, completed with the pastes in the order of the ids
+     */
+    public CompletableFuture<BatchResult<P>> retrievePastes(Collection<String> ids, int concurrency) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        return PasteBatch.run(unique, this::retrieve, concurrency).thenApply(result -> {
+            if (unique.size() == ids.size()) {
+                return result;
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < unique.size(); i++) {
+                positions.put(unique.get(i), i);
+            }
+            List<P> values = new ArrayList<>(ids.size());
+            Map<Integer, Throwable> failures = new TreeMap<>();
+            for (String id : ids) {
+                int position = positions.get(id);
+                Throwable failure = result.getFailures().get(position);
+                if (failure != null) {
+                    failures.put(values.size(), failure);
+                }
+                values.add(result.get(position));
+            }
+            return new BatchResult<>(values, failures);
+        });
+    }
+}
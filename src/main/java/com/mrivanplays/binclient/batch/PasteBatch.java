@@ -0,0 +1,179 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs many requests with a bounded amount of them being in flight at once. When a request completes, the next one is
+ * started from the completing thread, so no thread is blocked while the batch runs.
+ *
+ * @param <I> type of input
+ * @param <T> type of value, retrieved for each input
+ */
+public final class PasteBatch<I, T> {
+
+    private final List<I> inputs;
+    private final Function<I, CompletableFuture<T>> request;
+    private final Object[] values;
+    private final Map<Integer, Throwable> failures = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final CompletableFuture<BatchResult<T>> result = new CompletableFuture<BatchResult<T>>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            next.set(inputs.size());
+            inFlight.values().forEach(future -> future.cancel(mayInterruptIfRunning));
+            return super.cancel(mayInterruptIfRunning);
+        }
+    };
+
+    private PasteBatch(List<I> inputs, Function<I, CompletableFuture<T>> request) {
+        this.inputs = inputs;
+        this.request = request;
+        this.values = new Object[inputs.size()];
+    }
+
+    /**
+     * Creates a paste for every specified body, keeping at most <code>concurrency</code> requests in flight.
+     *
+     * @param bodies      paste bodies
+     * @param creator     function, creating the request which creates a paste, e.g. <code>server::createPaste</code>
+     * @param concurrency maximum amount of requests in flight
+     * @return future, completed with the ids in the order of the bodies once every request completed
+     */
+    public static CompletableFuture<BatchResult<String>> createPastes(Collection<String> bodies,
+                                                                      Function<String, RestRequest<String>> creator,
+                                                                      int concurrency) {
+        return run(bodies, body -> creator.apply(body).future(), concurrency);
+    }
+
+    /**
+     * Creates a paste on the specified service for every specified body, keeping at most <code>concurrency</code>
+     * requests in flight.
+     *
+     * @param bodies      paste bodies
+     * @param service     paste service
+     * @param concurrency maximum amount of requests in flight
+     * @return future, completed with the ids in the order of the bodies once every request completed
+     */
+    public static CompletableFuture<BatchResult<String>> createPastes(Collection<String> bodies,
+                                                                      PasteService<?> service,
+                                                                      int concurrency) {
+        return createPastes(bodies, service::createPaste, concurrency);
+    }
+
+    /**
+     * Runs the specified request for every input, keeping at most <code>concurrency</code> requests in flight.
+     * Cancelling the returned future cancels every request in flight and doesn't start new ones.
+     *
+     * @param inputs      inputs
+     * @param request     function, starting the request for an input
+     * @param concurrency maximum amount of requests in flight
+     * @param <I>         type of input
+     * @param <T>         type of value
+     * @return future, completed with the values in the order of the inputs once every request completed
+     */
+    public static <I, T> CompletableFuture<BatchResult<T>> run(Collection<I> inputs,
+                                                               Function<I, CompletableFuture<T>> request,
+                                                               int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency < 1: " + concurrency);
+        }
+        PasteBatch<I, T> batch = new PasteBatch<>(new ArrayList<>(inputs), request);
+        if (inputs.isEmpty()) {
+            batch.complete();
+            return batch.result;
+        }
+        for (int i = 0; i < Math.min(concurrency, inputs.size()); i++) {
+            batch.drive();
+        }
+        return batch.result;
+    }
+
+    private void drive() {
+        while (true) {
+            int index = next.getAndIncrement();
+            if (index >= inputs.size()) {
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = request.apply(inputs.get(index));
+            } catch (Throwable error) {
+                record(index, null, error);
+                continue;
+            }
+            if (future.isDone()) {
+                // completed synchronously (e.g. served from a cache), continue in this loop instead of recursing
+                record(index, future.handle((value, error) -> value).join(), failure(future));
+                continue;
+            }
+            inFlight.put(index, future);
+            if (result.isCancelled()) {
+                // cancelled while this request was being started
+                future.cancel(true);
+            }
+            future.whenComplete((value, error) -> {
+                inFlight.remove(index);
+                record(index, value, error);
+                drive();
+            });
+            return;
+        }
+    }
+
+    private void record(int index, T value, Throwable error) {
+        if (error != null) {
+            failures.put(index, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        } else {
+            values[index] = value;
+        }
+        if (completed.incrementAndGet() == inputs.size()) {
+            complete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete() {
+        result.complete(new BatchResult<>((List<T>) Arrays.asList(values), new TreeMap<>(failures)));
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        return future.handle((value, error) -> error).join();
+    }
+}
@@ -0,0 +1,495 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.cache;
+
+import com.mrivanplays.binclient.paste.GhostbinPaste;
+import com.mrivanplays.binclient.paste.IvanBinPaste;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.paste.SourcebinPaste;
+import com.mrivanplays.binclient.paste.impl.GhostbinPasteImpl;
+import com.mrivanplays.binclient.paste.impl.IvanBinPasteImpl;
+import com.mrivanplays.binclient.paste.impl.PasteImpl;
+import com.mrivanplays.binclient.paste.impl.SourcebinPasteImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Represents a persistent cache of retrieved pastes, surviving restarts. Pastes are appended to a single segment
+ * file, which is read through a memory mapping. An index of the segment is rebuilt when opening it, so a lookup costs
+ * at most a page fault instead of a request to the bin server.
+ *
+ * <p>The segment only grows; call {@link #compact()} to drop expired, invalidated and overwritten pastes. A segment
+ * is limited to 2 GiB; once full, it is compacted (at most once a minute), and pastes which still don't fit are not
+ * stored, counted by {@link #getRejectedCount()}.
+ */
+public final class DiskPasteCache implements Closeable {
+
+    private static final byte RECORD_PASTE = 1;
+    private static final byte RECORD_TOMBSTONE = 0;
+
+    private static final byte TYPE_PLAIN = 0;
+    private static final byte TYPE_IVANBIN = 1;
+    private static final byte TYPE_SOURCEBIN = 2;
+    private static final byte TYPE_GHOSTBIN = 3;
+
+    // records appended after the mapping are read with positional reads until the tail outgrows the mapping
+    private static final long MIN_REMAP_BYTES = 1024 * 1024;
+    private static final long FULL_COMPACTION_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Path file;
+    private final long maxSegmentSize;
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    // guards against the segment being swapped by compact() or close() while it is being read
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private long size;
+    private long lastFullCompaction = System.nanoTime() - FULL_COMPACTION_INTERVAL_NANOS;
+    private final LongAdder rejected = new LongAdder();
+
+    private DiskPasteCache(Path file, long maxSegmentSize) throws IOException {
+        this.file = file;
+        this.maxSegmentSize = maxSegmentSize;
+        openSegment();
+    }
+
+    /**
+     * Opens the disk cache, stored in the specified file. The file is created if it doesn't exist.
+     *
+     * @param file segment file
+     * @return disk cache
+     * @throws IOException if the file could not be opened
+     */
+    public static DiskPasteCache open(Path file) throws IOException {
+        return new DiskPasteCache(file, Integer.MAX_VALUE);
+    }
+
+    static DiskPasteCache open(Path file, long maxSegmentSize) throws IOException {
+        return new DiskPasteCache(file, maxSegmentSize);
+    }
+
+    /**
+     * Returns the stored paste with the specified id, or <code>null</code> if not stored or expired.
+     *
+     * @param server server name
+     * @param id     paste id
+     * @param <P>    paste type
+     * @return paste or null
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends Paste> P get(String server, String id) {
+        Stored stored = getStored(server, id, System.currentTimeMillis());
+        return stored == null ? null : (P) stored.paste;
+    }
+
+    /**
+     * Returns the stored paste with the specified id along with the expiry it was stored with, or <code>null</code>
+     * if not stored or expired at the specified time.
+     *
+     * @param server server name
+     * @param id     paste id
+     * @param now    epoch millis to check the expiry against
+     * @return stored paste or null
+     */
+    Stored getStored(String server, String id, long now) {
+        String key = key(server, id);
+        segmentLock.readLock().lock();
+        try {
+            Long offset = index.get(key);
+            if (offset == null || mapped == null) {
+                return null;
+            }
+            ByteBuffer record = record(offset);
+            record.get();
+            readString(record);
+            long expiresAt = record.getLong();
+            if (expiresAt <= now) {
+                index.remove(key, offset);
+                return null;
+            }
+            return new Stored(readPaste(record), expiresAt);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the specified paste, never expiring unless the paste itself expires on its server.
+     *
+     * @param server server name
+     * @param paste  paste
+     */
+    public void put(String server, Paste paste) {
+        long now = System.currentTimeMillis();
+        put(server, paste, PasteExpiry.expiresAt(paste, now));
+    }
+
+    /**
+     * Stores the specified paste.
+     *
+     * @param server    server name
+     * @param paste     paste
+     * @param expiresAt epoch millis, after which the paste is considered expired
+     */
+    public void put(String server, Paste paste, long expiresAt) {
+        String key = key(server, paste.getId());
+        try {
+            append(key, encode(RECORD_PASTE, key, expiresAt, paste));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store paste in " + file, e);
+        }
+    }
+
+    /**
+     * Removes the paste with the specified id.
+     *
+     * @param server server name
+     * @param id     paste id
+     */
+    public void invalidate(String server, String id) {
+        String key = key(server, id);
+        if (!index.containsKey(key)) {
+            return;
+        }
+        try {
+            append(key, encode(RECORD_TOMBSTONE, key, 0, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not invalidate paste in " + file, e);
+        }
+    }
+
+    /**
+     * Returns the amount of stored pastes, including ones which expired but weren't looked up since.
+     *
+     * @return size
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns how many pastes were not stored, because the segment was full even after compacting it.
+     *
+     * @return rejected count
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Rewrites the segment, keeping only pastes which are still stored and not expired.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void compact() throws IOException {
+        segmentLock.writeLock().lock();
+        try {
+            rewrite();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segmentLock.writeLock().lock();
+        try {
+            channel.close();
+            mapped = null;
+            index.clear();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    private void rewrite() throws IOException {
+        long now = System.currentTimeMillis();
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Long offset : index.values()) {
+                ByteBuffer record = record(offset);
+                int length = record.remaining();
+                record.get();
+                readString(record);
+                if (record.getLong() <= now) {
+                    continue;
+                }
+                ByteBuffer header = ByteBuffer.allocate(4).putInt(length);
+                header.flip();
+                ByteBuffer body = record(offset);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    out.write(new ByteBuffer[] {header, body});
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index.clear();
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        remap();
+
+        long position = 0;
+        while (position + 4 <= size) {
+            int length = mapped.getInt((int) position);
+            if (length <= 0 || position + 4 + length > size) {
+                break;
+            }
+            ByteBuffer record = record(position);
+            byte kind = record.get();
+            String key = readString(record);
+            if (kind == RECORD_PASTE) {
+                index.put(key, position);
+            } else {
+                index.remove(key);
+            }
+            position += 4 + length;
+        }
+        if (position != size) {
+            // a record was only partially written, most likely because the process died while appending it
+            channel.truncate(position);
+            size = position;
+            remap();
+        }
+    }
+
+    private synchronized void append(String key, byte[] record) throws IOException {
+        if (size + record.length > maxSegmentSize && System.nanoTime() - lastFullCompaction >= FULL_COMPACTION_INTERVAL_NANOS) {
+            lastFullCompaction = System.nanoTime();
+            compact();
+        }
+        if (size + record.length > maxSegmentSize) {
+            rejected.increment();
+            return;
+        }
+        long position = size;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        size += record.length;
+        long mappedSize = mapped.capacity();
+        if (size - mappedSize > Math.max(mappedSize, MIN_REMAP_BYTES)) {
+            // readers keep using the previous mapping until they're done with it
+            remap();
+        }
+        if (record[4] == RECORD_PASTE) {
+            index.put(key, position);
+        } else {
+            index.remove(key);
+        }
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * Returns a view of the record at the specified offset, without its length prefix.
+     */
+    private ByteBuffer record(long offset) {
+        MappedByteBuffer mapped = this.mapped;
+        if (offset >= mapped.capacity()) {
+            return readTail(offset);
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        int length = buffer.getInt((int) offset);
+        buffer.position((int) offset + 4);
+        buffer.limit((int) offset + 4 + length);
+        return buffer.slice();
+    }
+
+    private ByteBuffer readTail(long offset) {
+        try {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            readFully(length, offset);
+            ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+            readFully(record, offset + 4);
+            record.flip();
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read paste from " + file, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Record at " + position + " extends past the end of " + file);
+            }
+        }
+    }
+
+    private static byte[] encode(byte kind, String key, long expiresAt, Paste paste) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(kind);
+        writeString(out, key);
+        out.writeLong(expiresAt);
+        if (paste != null) {
+            writePaste(out, paste);
+        }
+        out.flush();
+        byte[] record = bytes.toByteArray();
+        ByteBuffer.wrap(record).putInt(record.length - 4);
+        return record;
+    }
+
+    private static void writePaste(DataOutputStream out, Paste paste) throws IOException {
+        byte type = paste instanceof IvanBinPaste ? TYPE_IVANBIN
+                : paste instanceof SourcebinPaste ? TYPE_SOURCEBIN
+                : paste instanceof GhostbinPaste ? TYPE_GHOSTBIN
+                : TYPE_PLAIN;
+        out.writeByte(type);
+        writeString(out, paste.getId());
+        writeBytes(out, paste.getBodyBytes());
+        writeString(out, paste.getUrl());
+        switch (type) {
+            case TYPE_IVANBIN:
+                IvanBinPaste ivanBinPaste = (IvanBinPaste) paste;
+                writeString(out, toString(ivanBinPaste.getCreatedAt()));
+                writeString(out, toString(ivanBinPaste.getExpiresAt()));
+                break;
+            case TYPE_SOURCEBIN:
+                SourcebinPaste sourcebinPaste = (SourcebinPaste) paste;
+                writeString(out, toString(sourcebinPaste.getCreatedAt()));
+                writeString(out, sourcebinPaste.getOwnerId());
+                break;
+            case TYPE_GHOSTBIN:
+                GhostbinPaste ghostbinPaste = (GhostbinPaste) paste;
+                GhostbinPaste.Language language = ghostbinPaste.getLanguage();
+                writeString(out, language == null ? null : language.getName());
+                writeString(out, language == null ? null : language.getId());
+                writeString(out, ghostbinPaste.getExpiration());
+                out.writeBoolean(ghostbinPaste.isEncrypted());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Paste readPaste(ByteBuffer in) {
+        byte type = in.get();
+        String id = readString(in);
+        byte[] body = readBytes(in);
+        String url = readString(in);
+        switch (type) {
+            case TYPE_IVANBIN:
+                return new IvanBinPasteImpl(id, body, url, toDateTime(readString(in)), toDateTime(readString(in)));
+            case TYPE_SOURCEBIN:
+                return new SourcebinPasteImpl(id, body, url, toDateTime(readString(in)), readString(in));
+            case TYPE_GHOSTBIN:
+                String languageName = readString(in);
+                String languageId = readString(in);
+                GhostbinPaste.Language language = languageName == null && languageId == null
+                        ? null : new GhostbinPaste.Language(languageName, languageId);
+                return new GhostbinPasteImpl(id, body, url, language, readString(in), in.get() != 0);
+            default:
+                return new PasteImpl(id, body, url);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeBytes(DataOutputStream out, ByteBuffer value) throws IOException {
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        byte[] bytes = new byte[Math.max(0, length)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String toString(OffsetDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toString();
+    }
+
+    private static OffsetDateTime toDateTime(String value) {
+        return value == null ? null : OffsetDateTime.parse(value);
+    }
+
+    private static String key(String server, String id) {
+        return server + '\u0000' + id;
+    }
+
+    static final class Stored {
+
+        final Paste paste;
+        final long expiresAt;
+
+        Stored(Paste paste, long expiresAt) {
+            this.paste = paste;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.cache;
+
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.paste.impl.PasteImpl;
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Represents an in-memory read-through cache of retrieved pastes, keyed by server and paste id. The cache is bounded
+ * by the approximate amount of bytes the cached pastes occupy, evicting the least recently used ones first. Entries
+ * expire after a configurable time, or earlier if the paste itself expires on its server. Optionally, a
+ * {@link DiskPasteCache} can be used as a second tier, which is consulted on misses and survives restarts.
+ */
+public final class PasteCache {
+
+    private final long maximumWeight;
+    private final long expireAfterWriteMillis;
+    private final Clock clock;
+    private final DiskPasteCache diskCache;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private PasteCache(Builder builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.expireAfterWriteMillis = builder.expireAfterWrite.toMillis();
+        this.clock = builder.clock;
+        this.diskCache = builder.diskCache;
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Retrieves the paste with the specified id from the cache, or via the specified loader if not cached. Loaded
+     * pastes are put into the cache.
+     *
+     * @param server server name, the paste is cached under
+     * @param id     paste id
+     * @param loader function, creating the request which retrieves the paste from the server
+     * @param <P>    paste type
+     * @return future, completed with the paste
+     */
+    public <P extends Paste> CompletableFuture<P> retrieve(String server, String id, Function<String, RestRequest<P>> loader) {
+        P cached = get(server, id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return loader.apply(id).future().thenApply(paste -> {
+            put(server, paste);
+            return paste;
+        });
+    }
+
+    /**
+     * Retrieves the paste with the specified id from the cache, or from the specified service if not cached. The paste
+     * is cached under the service's name.
+     *
+     * @param service paste service
+     * @param id      paste id
+     * @param <P>     paste type
+     * @return future, completed with the paste
+     */
+    public <P extends Paste> CompletableFuture<P> retrieve(PasteService<P> service, String id) {
+        return retrieve(service.getName(), id, service::retrievePaste);
+    }
+
+    /**
+     * Returns the cached paste with the specified id, or <code>null</code> if not cached or expired.
+     *
+     * @param server server name
+     * @param id     paste id
+     * @param <P>    paste type
+     * @return cached paste or null
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends Paste> P get(String server, String id) {
+        Key key = new Key(server, id);
+        long now = clock.millis();
+        Paste paste = null;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                remove(key);
+            } else if (entry != null) {
+                paste = entry.paste;
+            }
+        }
+        if (paste == null && diskCache != null) {
+            DiskPasteCache.Stored stored = diskCache.getStored(server, id, now);
+            if (stored != null) {
+                paste = stored.paste;
+                diskHits.increment();
+                putInMemory(server, paste, stored.expiresAt, now);
+            }
+        }
+        if (paste == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return (P) paste;
+    }
+
+    /**
+     * Puts the specified paste into the cache.
+     *
+     * @param server server name
+     * @param paste  paste
+     */
+    public void put(String server, Paste paste) {
+        long now = clock.millis();
+        putInMemory(server, paste, PasteExpiry.expiresAt(paste, now), now);
+        if (diskCache != null) {
+            long expiresAt = PasteExpiry.expiresAt(paste, now);
+            if (expiresAt > now) {
+                diskCache.put(server, paste, expiresAt);
+            }
+        }
+    }
+
+    /**
+     * Removes the paste with the specified id from the cache.
+     *
+     * @param server server name
+     * @param id     paste id
+     */
+    public void invalidate(String server, String id) {
+        synchronized (entries) {
+            remove(new Key(server, id));
+        }
+        if (diskCache != null) {
+            diskCache.invalidate(server, id);
+        }
+    }
+
+    /**
+     * Removes every paste from the in-memory tier of the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Returns the amount of pastes in the cache.
+     *
+     * @return size
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the approximate amount of bytes, occupied by the cached pastes.
+     *
+     * @return weight
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * Returns how many times a requested paste was found in the cache.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many of the hits were served by the disk tier.
+     *
+     * @return disk hit count
+     */
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    /**
+     * Returns how many times a requested paste was not found in the cache.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns how many pastes were evicted because of the size bound.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void putInMemory(String server, Paste paste, long pasteExpiresAt, long now) {
+        long ttlExpiresAt = expireAfterWriteMillis > PasteExpiry.NEVER - now ? PasteExpiry.NEVER : now + expireAfterWriteMillis;
+        long expiresAt = Math.min(pasteExpiresAt, ttlExpiresAt);
+        if (expiresAt <= now) {
+            return;
+        }
+        Entry entry = new Entry(paste, weigh(paste), expiresAt);
+        if (entry.weight > maximumWeight) {
+            return;
+        }
+        Key key = new Key(server, paste.getId());
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+            evict(now);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private void evict(long now) {
+        if (weight <= maximumWeight) {
+            return;
+        }
+        // first drop whatever has expired, then the least recently used ones
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext() && weight > maximumWeight; ) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt <= now) {
+                iterator.remove();
+                weight -= entry.weight;
+            }
+        }
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext() && weight > maximumWeight; ) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            weight -= entry.weight;
+            evictions.increment();
+        }
+    }
+
+    private static long weigh(Paste paste) {
+        // object headers and references, plus two bytes per char of every string held
+        long body = paste instanceof PasteImpl ? ((PasteImpl) paste).getRetainedBodySize() : 2L * length(paste.getBody());
+        return 64 + body + 2L * (length(paste.getId()) + length(paste.getUrl()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class Key {
+
+        private final String server;
+        private final String id;
+
+        Key(String server, String id) {
+            this.server = server;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return server.equals(key.server) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(server, id);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Paste paste;
+        private final long weight;
+        private final long expiresAt;
+
+        Entry(Paste paste, long weight, long expiresAt) {
+            this.paste = paste;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Represents a builder of {@link PasteCache}
+     */
+    public static final class Builder {
+
+        private long maximumWeight = 64 * 1024 * 1024;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        private Clock clock = Clock.systemUTC();
+        private DiskPasteCache diskCache;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum amount of bytes, the cached pastes may occupy. Defaults to 64 MiB.
+         *
+         * @param maximumWeight maximum weight in bytes
+         * @return this instance for chaining
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeight < 0: " + maximumWeight);
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Sets the time after a paste is removed from the cache, after it was put into it. Pastes, which expire on
+         * their server earlier, are removed when they expire. Defaults to 10 minutes.
+         *
+         * @param expireAfterWrite time to live
+         * @return this instance for chaining
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = Objects.requireNonNull(expireAfterWrite, "expireAfterWrite");
+            return this;
+        }
+
+        /**
+         * Sets the clock, used for determining expiration
+         *
+         * @param clock clock
+         * @return this instance for chaining
+         */
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        /**
+         * Sets the disk cache, used as a second tier behind the in-memory one
+         *
+         * @param diskCache disk cache
+         * @return this instance for chaining
+         */
+        public Builder diskCache(DiskPasteCache diskCache) {
+            this.diskCache = diskCache;
+            return this;
+        }
+
+        /**
+         * Builds the cache
+         *
+         * @return paste cache
+         */
+        public PasteCache build() {
+            return new PasteCache(this);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.cache;
+
+import com.mrivanplays.binclient.paste.GhostbinPaste;
+import com.mrivanplays.binclient.paste.IvanBinPaste;
+import com.mrivanplays.binclient.paste.Paste;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Determines when a paste expires on its bin server, using the expirations exposed by the paste types.
+ */
+final class PasteExpiry {
+
+    static final long NEVER = Long.MAX_VALUE;
+
+    private PasteExpiry() {
+    }
+
+    /**
+     * Returns the epoch millis the specified paste expires at on its server, or {@link #NEVER} if unknown.
+     *
+     * @param paste paste
+     * @param now   current epoch millis
+     * @return expiration epoch millis
+     */
+    static long expiresAt(Paste paste, long now) {
+        if (paste instanceof IvanBinPaste) {
+            OffsetDateTime expiresAt = ((IvanBinPaste) paste).getExpiresAt();
+            return expiresAt == null ? NEVER : expiresAt.toInstant().toEpochMilli();
+        }
+        if (paste instanceof GhostbinPaste) {
+            return parseGhostbinExpiration(((GhostbinPaste) paste).getExpiration(), now);
+        }
+        return NEVER;
+    }
+
+    /**
+     * Ghostbin reports the expiration either as a timestamp or as a duration (e.g. <code>10m</code>,
+     * <code>1h</code>, <code>-1</code> for never). A duration is counted from now, since the creation time is not
+     * exposed.
+     */
+    static long parseGhostbinExpiration(String expiration, long now) {
+        if (expiration == null || expiration.isEmpty() || expiration.equals("-1") || expiration.equalsIgnoreCase("never")) {
+            return NEVER;
+        }
+        try {
+            return OffsetDateTime.parse(expiration).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return OffsetDateTime.parse(expiration, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        long duration = parseDuration(expiration);
+        return duration < 0 ? NEVER : now + duration;
+    }
+
+    private static long parseDuration(String expiration) {
+        char unit = expiration.charAt(expiration.length() - 1);
+        long amount;
+        try {
+            amount = Long.parseLong(Character.isDigit(unit) ? expiration : expiration.substring(0, expiration.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        switch (unit) {
+            case 's':
+                return TimeUnit.SECONDS.toMillis(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toMillis(amount);
+            case 'h':
+                return TimeUnit.HOURS.toMillis(amount);
+            case 'd':
+                return TimeUnit.DAYS.toMillis(amount);
+            case 'w':
+                return TimeUnit.DAYS.toMillis(amount * 7);
+            default:
+                return Character.isDigit(unit) ? TimeUnit.SECONDS.toMillis(amount) : -1;
+        }
+    }
+}
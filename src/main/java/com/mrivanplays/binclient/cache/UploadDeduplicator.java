@@ -0,0 +1,494 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.cache;
+
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Deduplicates paste uploads by content: creating a paste with the same body on the same server again returns the id
+ * of the paste created before, without a request, as long as that one didn't expire. Concurrent uploads of the same
+ * body share a single request. Ids are only reused until the paste expires on its server, if that is sooner than the
+ * configured time to live.
+ * <p>
+ * Bodies are keyed by a fast 64-bit hash (xxHash64); a match is only used if the SHA-256 of the bodies matches too,
+ * so a hash collision causes an upload rather than a wrong id. Optionally, created ids are appended to a file and
+ * loaded again on the next start.
+ */
+public final class UploadDeduplicator implements Closeable {
+
+    private static final int FILE_VERSION = 1;
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private final long expireAfterWriteMillis;
+    private final int maximumSize;
+    private final Clock clock;
+    private final Path file;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private DataOutputStream out;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private UploadDeduplicator(Builder builder) throws IOException {
+        this.expireAfterWriteMillis = builder.expireAfterWrite.toMillis();
+        this.maximumSize = builder.maximumSize;
+        this.clock = builder.clock;
+        this.file = builder.file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a paste with the specified body on the specified service, unless a paste with the same body was created
+     * on it before and didn't expire, in which case its id is returned. Ids are reused no longer than the paste lives
+     * on the service; on services with expiring pastes, whose lifetime isn't known from the create request, every
+     * body is uploaded.
+     *
+     * @param service paste service
+     * @param body    body
+     * @return future, completed with the paste id
+     */
+    public CompletableFuture<String> createPaste(PasteService<?> service, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        long serverExpiresAt = serverExpiresAt(service, clock.millis());
+        if (serverExpiresAt < 0) {
+            misses.increment();
+            return service.createPaste(ByteBuffer.wrap(bytes)).future();
+        }
+        return createPaste(service.getName(), bytes, service::createPaste, serverExpiresAt);
+    }
+
+    /**
+     * Creates a paste with the specified body via the specified creator, unless a paste with the same body was
+     * created on the server before and didn't expire, in which case its id is returned. Since the paste's expiry on
+     * the server is unknown here, ids are reused for the configured time to live.
+     *
+     * @param server  server name, the id is remembered under
+     * @param body    body
+     * @param creator function, creating the request which creates a paste of the bytes remaining in a buffer
+     * @return future, completed with the paste id
+     */
+    public CompletableFuture<String> createPaste(String server, byte[] body,
+                                                 Function<ByteBuffer, RestRequest<String>> creator) {
+        return createPaste(server, body, creator, PasteExpiry.NEVER);
+    }
+
+    private CompletableFuture<String> createPaste(String server, byte[] body,
+                                                  Function<ByteBuffer, RestRequest<String>> creator,
+                                                  long serverExpiresAt) {
+        Key key = new Key(server, xxHash64(body));
+        byte[] sha256 = sha256(body);
+        long now = clock.millis();
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.expiresAt > now && Arrays.equals(existing.sha256, sha256)) {
+                hits.increment();
+                // a dependent future, so callers cancelling it don't affect each other
+                return existing.id.thenApply(Function.identity());
+            }
+            long ttlExpiresAt = expireAfterWriteMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + expireAfterWriteMillis;
+            Entry created = new Entry(sha256, Math.min(ttlExpiresAt, serverExpiresAt), new CompletableFuture<>());
+            if (existing == null ? entries.putIfAbsent(key, created) != null : !entries.replace(key, existing, created)) {
+                // raced with another upload of a body with this hash
+                continue;
+            }
+            misses.increment();
+            if (entries.size() > maximumSize) {
+                evict(now);
+            }
+            creator.apply(ByteBuffer.wrap(body)).future().whenComplete((id, error) -> {
+                if (error != null) {
+                    entries.remove(key, created);
+                    created.id.completeExceptionally(error);
+                    return;
+                }
+                // persisted first, so it is written once callers see the id
+                append(key, created, id);
+                created.id.complete(id);
+            });
+            return created.id.thenApply(Function.identity());
+        }
+    }
+
+    /**
+     * Returns the epoch millis a paste, created on the specified service now, expires at on it, as far as known from
+     * the create request, or -1 if its pastes expire after an unknown time.
+     */
+    private static long serverExpiresAt(PasteService<?> service, long now) {
+        if (!service.getCapabilities().contains(PasteService.Capability.EXPIRY)) {
+            return PasteExpiry.NEVER;
+        }
+        if (service instanceof GhostbinServer) {
+            // pastes live for the requested expiry time, counted from their creation
+            return PasteExpiry.parseGhostbinExpiration(((GhostbinServer) service).getDefaultExpiryTime(), now);
+        }
+        return -1;
+    }
+
+    /**
+     * Forgets every remembered paste.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the amount of remembered pastes, including pastes still being created.
+     *
+     * @return size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns how many uploads were avoided, because the body was uploaded before.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many bodies were uploaded.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * Removes expired entries and, if still too many, the ones expiring soonest, down to 90% of the maximum size.
+     */
+    private void evict(long now) {
+        entries.entrySet().removeIf(entry -> entry.getValue().expiresAt <= now);
+        int excess = entries.size() - maximumSize * 9 / 10;
+        if (excess > 0) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                    .limit(excess)
+                    .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private synchronized void append(Key key, Entry entry, String id) {
+        if (out == null) {
+            return;
+        }
+        try {
+            write(out, key, entry, id);
+            out.flush();
+        } catch (IOException e) {
+            // persistence is best effort, the id is still remembered in memory
+        }
+    }
+
+    /**
+     * Loads the file and rewrites it with the entries which didn't expire, so it doesn't grow across restarts.
+     */
+    private void load() throws IOException {
+        long now = clock.millis();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != FILE_VERSION) {
+                    throw new IOException("Unsupported deduplication file version in " + file);
+                }
+                while (true) {
+                    Key key = new Key(in.readUTF(), in.readLong());
+                    byte[] sha256 = new byte[32];
+                    in.readFully(sha256);
+                    long expiresAt = in.readLong();
+                    String id = in.readUTF();
+                    if (expiresAt > now) {
+                        entries.put(key, new Entry(sha256, expiresAt, CompletableFuture.completedFuture(id)));
+                    }
+                }
+            } catch (EOFException e) {
+                // end of file, or a record cut short by a crash
+            }
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream rewrite = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            rewrite.writeInt(FILE_VERSION);
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                write(rewrite, entry.getKey(), entry.getValue(), entry.getValue().id.join());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)));
+    }
+
+    private static void write(DataOutputStream out, Key key, Entry entry, String id) throws IOException {
+        out.writeUTF(key.server);
+        out.writeLong(key.hash);
+        out.write(entry.sha256);
+        out.writeLong(entry.expiresAt);
+        out.writeUTF(id);
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * xxHash64 with seed 0
+     */
+    static long xxHash64(byte[] input) {
+        ByteBuffer buffer = ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN);
+        int length = input.length;
+        int i = 0;
+        long hash;
+        if (length >= 32) {
+            long v1 = PRIME64_1 + PRIME64_2;
+            long v2 = PRIME64_2;
+            long v3 = 0;
+            long v4 = -PRIME64_1;
+            do {
+                v1 = round(v1, buffer.getLong(i));
+                v2 = round(v2, buffer.getLong(i + 8));
+                v3 = round(v3, buffer.getLong(i + 16));
+                v4 = round(v4, buffer.getLong(i + 24));
+                i += 32;
+            } while (i <= length - 32);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+        hash += length;
+        for (; i + 8 <= length; i += 8) {
+            hash ^= round(0, buffer.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (i + 4 <= length) {
+            hash ^= (buffer.getInt(i) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            hash ^= (input[i] & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * PRIME64_1 + PRIME64_4;
+    }
+
+    private static final class Key {
+
+        private final String server;
+        private final long hash;
+
+        Key(String server, long hash) {
+            this.server = server;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && server.equals(key.server);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * server.hashCode() + Long.hashCode(hash);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] sha256;
+        private final long expiresAt;
+        private final CompletableFuture<String> id;
+
+        Entry(byte[] sha256, long expiresAt, CompletableFuture<String> id) {
+            this.sha256 = sha256;
+            this.expiresAt = expiresAt;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Represents a builder of {@link UploadDeduplicator}
+     */
+    public static final class Builder {
+
+        private Duration expireAfterWrite = Duration.ofDays(1);
+        private int maximumSize = 10_000;
+        private Clock clock = Clock.systemUTC();
+        private Path file;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the time a created paste's id is reused for. Pastes created on a {@link PasteService} are reused only
+         * until they expire on it, if sooner; with a creator function, this should not exceed the time the pastes
+         * live on their server. Defaults to 1 day.
+         *
+         * @param expireAfterWrite time to live
+         * @return this instance for chaining
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = Objects.requireNonNull(expireAfterWrite, "expireAfterWrite");
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of remembered pastes. Once exceeded, expired ones and then the ones expiring soonest
+         * are forgotten. Defaults to 10000.
+         *
+         * @param maximumSize maximum size
+         * @return this instance for chaining
+         */
+        public Builder maximumSize(int maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maximumSize < 1: " + maximumSize);
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the clock, used for determining expiration
+         *
+         * @param clock clock
+         * @return this instance for chaining
+         */
+        public Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        /**
+         * Sets the file, created ids are persisted to and loaded from. <code>null</code>, the default, only keeps them
+         * in memory.
+         *
+         * @param file file
+         * @return this instance for chaining
+         */
+        public Builder file(Path file) {
+            this.file = file;
+            return this;
+        }
+
+        /**
+         * Builds the deduplicator, loading the file if set
+         *
+         * @return upload deduplicator
+         * @throws UncheckedIOException if the file could not be read or written
+         */
+        public UploadDeduplicator build() {
+            try {
+                return new UploadDeduplicator(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
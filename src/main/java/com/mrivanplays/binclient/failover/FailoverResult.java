@@ -0,0 +1,69 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.failover;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the result of an upload through a {@link FailoverUploader}.
+ */
+public final class FailoverResult {
+
+    private final String backend;
+    private final String id;
+    private final Map<String, Throwable> failures;
+
+    FailoverResult(String backend, String id, Map<String, Throwable> failures) {
+        this.backend = backend;
+        this.id = id;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Returns the name of the backend, which accepted the paste.
+     *
+     * @return backend name
+     */
+    public String getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the id of the created paste.
+     *
+     * @return paste id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the failures of the backends, which were tried before the accepting one, keyed by backend name.
+     *
+     * @return failures
+     */
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.failover;
+
+import com.mrivanplays.binclient.request.RequestException;
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Uploads pastes to whichever backend accepts them, trying the backends in priority order. A backend, whose request
+ * fails, is skipped in favor of the next one. Combined with a {@link com.mrivanplays.binclient.request.CircuitBreaker}
+ * on each server, a backend which is down is skipped immediately instead of after a timeout.
+ */
+public final class FailoverUploader {
+
+    private final List<Backend> backends;
+
+    private FailoverUploader(List<Backend> backends) {
+        this.backends = Collections.unmodifiableList(new ArrayList<>(backends));
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Uploads the specified paste to the first backend, accepting it.
+     *
+     * @param code code
+     * @return future, completed with the result, or failed with a {@link RequestException} if every backend failed
+     */
+    public CompletableFuture<FailoverResult> upload(String code) {
+        CompletableFuture<FailoverResult> result = new CompletableFuture<>();
+        tryBackend(code, 0, new LinkedHashMap<>(), result);
+        return result;
+    }
+
+    /**
+     * Uploads the specified paste to the first backend accepting it, blocking until done.
+     *
+     * @param code code
+     * @return result
+     * @throws RequestException if every backend failed
+     */
+    public FailoverResult uploadSync(String code) {
+        try {
+            return upload(code).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RequestException) {
+                throw (RequestException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void tryBackend(String code, int index, Map<String, Throwable> failures, CompletableFuture<FailoverResult> result) {
+        if (index == backends.size()) {
+            RequestException error = new RequestException("Every backend failed to create the paste: " + failures.keySet(), null);
+            failures.values().forEach(error::addSuppressed);
+            result.completeExceptionally(error);
+            return;
+        }
+        Backend backend = backends.get(index);
+        CompletableFuture<String> attempt;
+        try {
+            attempt = backend.creator.apply(code).future();
+        } catch (Throwable error) {
+            failures.put(backend.name, error);
+            tryBackend(code, index + 1, failures, result);
+            return;
+        }
+        attempt.whenComplete((id, error) -> {
+            if (error == null) {
+                result.complete(new FailoverResult(backend.name, id, failures));
+                return;
+            }
+            failures.put(backend.name, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            tryBackend(code, index + 1, failures, result);
+        });
+    }
+
+    private static final class Backend {
+
+        private final String name;
+        private final Function<String, RestRequest<String>> creator;
+
+        Backend(String name, Function<String, RestRequest<String>> creator) {
+            this.name = name;
+            this.creator = creator;
+        }
+    }
+
+    /**
+     * Represents a builder of {@link FailoverUploader}
+     */
+    public static final class Builder {
+
+        private final List<Backend> backends = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a backend. Backends are tried in the order they were added.
+         *
+         * @param name    backend name, reported in the {@link FailoverResult}
+         * @param creator function, creating the request which creates a paste, e.g. <code>server::createPaste</code>
+         * @return this instance for chaining
+         */
+        public Builder backend(String name, Function<String, RestRequest<String>> creator) {
+            backends.add(new Backend(Objects.requireNonNull(name, "name"), Objects.requireNonNull(creator, "creator")));
+            return this;
+        }
+
+        /**
+         * Adds a backend, named after the specified service. Backends are tried in the order they were added.
+         *
+         * @param service paste service
+         * @return this instance for chaining
+         */
+        public Builder backend(PasteService<?> service) {
+            return backend(service.getName(), service::createPaste);
+        }
+
+        /**
+         * Builds the uploader
+         *
+         * @return failover uploader
+         */
+        public FailoverUploader build() {
+            if (backends.isEmpty()) {
+                throw new IllegalStateException("At least one backend is required");
+            }
+            return new FailoverUploader(backends);
+        }
+    }
+}
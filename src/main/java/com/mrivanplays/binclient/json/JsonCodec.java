@@ -0,0 +1,74 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+
+/**
+ * Represents a json codec, used by the servers to read responses. {@link #orgJson()} is the default, keeping
+ * BinClient's footprint small; {@link #streaming()} avoids building a tree of the whole response and is faster, but
+ * is more lenient about malformed json in members which aren't needed. The default can be changed with the
+ * <code>binclient.json.codec</code> system property (<code>org.json</code> or <code>streaming</code>).
+ */
+public interface JsonCodec {
+
+    /**
+     * Reads a json object from the specified reader. Only the specified members have to be retained, which allows
+     * a codec to skip others while reading.
+     *
+     * @param in     reader
+     * @param fields names of the members to retain
+     * @return json object
+     * @throws IOException if an I/O error occurs or the json is malformed
+     */
+    JsonObject read(Reader in, Collection<String> fields) throws IOException;
+
+    /**
+     * Returns the codec, backed by org.json
+     *
+     * @return org.json codec
+     */
+    static JsonCodec orgJson() {
+        return OrgJsonCodec.INSTANCE;
+    }
+
+    /**
+     * Returns the codec, backed by {@link JsonReader}
+     *
+     * @return streaming codec
+     */
+    static JsonCodec streaming() {
+        return StreamingJsonCodec.INSTANCE;
+    }
+
+    /**
+     * Returns the default codec, as selected by the <code>binclient.json.codec</code> system property.
+     *
+     * @return default codec
+     */
+    static JsonCodec defaultCodec() {
+        return "streaming".equalsIgnoreCase(System.getProperty("binclient.json.codec")) ? streaming() : orgJson();
+    }
+}
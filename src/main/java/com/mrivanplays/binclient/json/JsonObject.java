@@ -0,0 +1,63 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+/**
+ * Represents a read only view of a json object, read by a {@link JsonCodec}.
+ */
+public interface JsonObject {
+
+    /**
+     * Returns whenever the object has a member with the specified name
+     *
+     * @param name member name
+     * @return has member
+     */
+    boolean has(String name);
+
+    /**
+     * Returns the string value of the member with the specified name. Numbers and booleans are returned as their
+     * literal text.
+     *
+     * @param name member name
+     * @return string, or <code>null</code> if missing, json null or not a scalar
+     */
+    String getString(String name);
+
+    /**
+     * Returns the boolean value of the member with the specified name
+     *
+     * @param name         member name
+     * @param defaultValue value, returned if the member is missing or not a boolean
+     * @return boolean
+     */
+    boolean getBoolean(String name, boolean defaultValue);
+
+    /**
+     * Returns the object value of the member with the specified name
+     *
+     * @param name member name
+     * @return object, or <code>null</code> if missing or not an object
+     */
+    JsonObject getObject(String name);
+}
@@ -0,0 +1,448 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a pull based json reader. Unlike {@link org.json.JSONObject}, it never builds a tree of the whole
+ * document, and string values can be streamed to a {@link Writer} without being materialized as a {@link String}.
+ */
+public final class JsonReader implements Closeable {
+
+    private static final int EMPTY_OBJECT = 1;
+    private static final int NONEMPTY_OBJECT = 2;
+    private static final int EMPTY_ARRAY = 3;
+    private static final int NONEMPTY_ARRAY = 4;
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+
+    private int[] stack = new int[16];
+    private int depth;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    public JsonReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Represents the type of the next value
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    /**
+     * Returns the type of the next value without consuming it.
+     *
+     * @return token
+     * @throws IOException if an I/O error occurs
+     */
+    public Token peek() throws IOException {
+        if (depth > 0 && stack[depth - 1] == NONEMPTY_ARRAY) {
+            int c = nextNonWhitespace();
+            if (c == ',') {
+                pos++;
+                stack[depth - 1] = EMPTY_ARRAY;
+            }
+        }
+        int c = nextNonWhitespace();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    /**
+     * Consumes the beginning of an object.
+     *
+     * @throws IOException if an I/O error occurs or the next value is not an object
+     */
+    public void beginObject() throws IOException {
+        beforeValue();
+        expect('{');
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of the current object.
+     *
+     * @throws IOException if an I/O error occurs or the object has more members
+     */
+    public void endObject() throws IOException {
+        expect('}');
+        depth--;
+    }
+
+    /**
+     * Consumes the beginning of an array.
+     *
+     * @throws IOException if an I/O error occurs or the next value is not an array
+     */
+    public void beginArray() throws IOException {
+        beforeValue();
+        expect('[');
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of the current array.
+     *
+     * @throws IOException if an I/O error occurs or the array has more elements
+     */
+    public void endArray() throws IOException {
+        expect(']');
+        depth--;
+    }
+
+    /**
+     * Returns whenever the current object or array has more elements.
+     *
+     * @return <code>true</code> if there are more elements, <code>false</code> otherwise
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean hasNext() throws IOException {
+        int c = nextNonWhitespace();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Consumes the name of the next object member.
+     *
+     * @return name
+     * @throws IOException if an I/O error occurs or the reader is not inside an object
+     */
+    public String nextName() throws IOException {
+        if (depth == 0 || (stack[depth - 1] != EMPTY_OBJECT && stack[depth - 1] != NONEMPTY_OBJECT)) {
+            throw syntaxError("Expected a name outside of an object");
+        }
+        if (stack[depth - 1] == NONEMPTY_OBJECT) {
+            expect(',');
+        }
+        stack[depth - 1] = NONEMPTY_OBJECT;
+        expect('"');
+        StringBuilder name = new StringBuilder();
+        readString(name);
+        expect(':');
+        return name.toString();
+    }
+
+    /**
+     * Skips members of the current object until one with the specified name is found. The reader is then
+     * positioned at its value.
+     *
+     * @param name member name
+     * @return <code>true</code> if found, <code>false</code> if the object has no such member
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean seekName(String name) throws IOException {
+        while (hasNext()) {
+            if (nextName().equals(name)) {
+                return true;
+            }
+            skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the next string value. Numbers and booleans are returned as their literal text.
+     *
+     * @return string, or <code>null</code> if the value is json null
+     * @throws IOException if an I/O error occurs or the next value is not a scalar
+     */
+    public String nextString() throws IOException {
+        beforeValue();
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            pos++;
+            StringBuilder value = new StringBuilder();
+            readString(value);
+            return value.toString();
+        }
+        if (c == '{' || c == '[') {
+            throw syntaxError("Expected a string but was '" + (char) c + "'");
+        }
+        String literal = readLiteral();
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false") && !NUMBER.matcher(literal).matches()) {
+            throw syntaxError("Unexpected literal '" + literal + "'");
+        }
+        return literal;
+    }
+
+    /**
+     * Consumes the next string value, writing its decoded contents to the specified writer.
+     *
+     * @param out writer to write to
+     * @throws IOException if an I/O error occurs or the next value is not a string
+     */
+    public void nextString(Writer out) throws IOException {
+        beforeValue();
+        expect('"');
+        readString(out);
+    }
+
+    /**
+     * Consumes the next boolean value.
+     *
+     * @return boolean
+     * @throws IOException if an I/O error occurs or the next value is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        beforeValue();
+        nextNonWhitespace();
+        String literal = readLiteral();
+        if (literal.equals("true")) {
+            return true;
+        }
+        if (literal.equals("false")) {
+            return false;
+        }
+        throw syntaxError("Expected a boolean but was '" + literal + "'");
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void skipValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case STRING:
+                beforeValue();
+                pos++;
+                readString(null);
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+            case END_DOCUMENT:
+                throw syntaxError("Expected a value");
+            default:
+                nextString();
+                break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        depth = 0;
+        in.close();
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth == 0) {
+            return;
+        }
+        int context = stack[depth - 1];
+        if (context == NONEMPTY_ARRAY) {
+            expect(',');
+        } else if (context == EMPTY_ARRAY) {
+            stack[depth - 1] = NONEMPTY_ARRAY;
+        }
+    }
+
+    private void push(int context) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = context;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = nextNonWhitespace();
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "' but was " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+        pos++;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+                continue;
+            }
+            return c;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private String readLiteral() throws IOException {
+        StringBuilder literal = new StringBuilder();
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                break;
+            }
+            literal.append(c);
+            pos++;
+        }
+        if (literal.length() == 0) {
+            throw syntaxError("Expected a value");
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Reads a string, whose opening quote was already consumed. If <code>out</code> is null, the string is skipped.
+     */
+    private void readString(Appendable out) throws IOException {
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            if (out != null && pos > start) {
+                if (out instanceof Writer) {
+                    ((Writer) out).write(buffer, start, pos - start);
+                } else {
+                    ((StringBuilder) out).append(buffer, start, pos - start);
+                }
+            }
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            char escaped = readEscape();
+            if (out != null) {
+                out.append(escaped);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char c = buffer[pos++];
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (pos == limit && !fill()) {
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit == -1) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("Invalid escape sequence '\\" + c + "'");
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed json: " + message);
+    }
+}
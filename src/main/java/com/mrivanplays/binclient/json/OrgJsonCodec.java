@@ -0,0 +1,92 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+
+/**
+ * A {@link JsonCodec}, backed by org.json. It reads the whole object into a tree.
+ */
+final class OrgJsonCodec implements JsonCodec {
+
+    static final OrgJsonCodec INSTANCE = new OrgJsonCodec();
+
+    private OrgJsonCodec() {
+    }
+
+    @Override
+    public JsonObject read(Reader in, Collection<String> fields) throws IOException {
+        try {
+            return new OrgJsonObject(new JSONObject(new JSONTokener(in)));
+        } catch (JSONException e) {
+            throw new IOException("Malformed json: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "org.json";
+    }
+
+    private static final class OrgJsonObject implements JsonObject {
+
+        private final JSONObject object;
+
+        OrgJsonObject(JSONObject object) {
+            this.object = object;
+        }
+
+        @Override
+        public boolean has(String name) {
+            return object.has(name);
+        }
+
+        @Override
+        public String getString(String name) {
+            Object value = object.opt(name);
+            if (value == null || value == JSONObject.NULL || value instanceof JSONObject
+                    || value instanceof JSONArray) {
+                return null;
+            }
+            return value.toString();
+        }
+
+        @Override
+        public boolean getBoolean(String name, boolean defaultValue) {
+            return object.optBoolean(name, defaultValue);
+        }
+
+        @Override
+        public JsonObject getObject(String name) {
+            JSONObject value = object.optJSONObject(name);
+            return value == null ? null : new OrgJsonObject(value);
+        }
+    }
+}
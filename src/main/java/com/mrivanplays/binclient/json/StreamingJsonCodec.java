@@ -0,0 +1,124 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link JsonCodec}, backed by {@link JsonReader}. Members, which weren't requested, are skipped without being
+ * materialized.
+ */
+final class StreamingJsonCodec implements JsonCodec {
+
+    static final StreamingJsonCodec INSTANCE = new StreamingJsonCodec();
+
+    private StreamingJsonCodec() {
+    }
+
+    @Override
+    public JsonObject read(Reader in, Collection<String> fields) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        return new MapObject(readObject(reader, fields));
+    }
+
+    private static Map<String, Object> readObject(JsonReader reader, Collection<String> fields) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (fields == null || fields.contains(name)) {
+                values.put(name, readValue(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return values;
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                // nested objects are only read for requested members, and are retained whole
+                return readObject(reader, null);
+            case BEGIN_ARRAY:
+                reader.skipValue();
+                return null;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            default:
+                return reader.nextString();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "streaming";
+    }
+
+    private static final class MapObject implements JsonObject {
+
+        private final Map<String, Object> values;
+
+        MapObject(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean has(String name) {
+            return values.containsKey(name);
+        }
+
+        @Override
+        public String getString(String name) {
+            Object value = values.get(name);
+            return value instanceof String || value instanceof Boolean ? value.toString() : null;
+        }
+
+        @Override
+        public boolean getBoolean(String name, boolean defaultValue) {
+            Object value = values.get(name);
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            if ("true".equals(value)) {
+                return true;
+            }
+            if ("false".equals(value)) {
+                return false;
+            }
+            return defaultValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonObject getObject(String name) {
+            Object value = values.get(name);
+            return value instanceof Map ? new MapObject((Map<String, Object>) value) : null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.metrics;
+
+import com.mrivanplays.binclient.request.RequestListener;
+import com.mrivanplays.binclient.request.RequestMetrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records {@link RequestMetrics} into a Micrometer {@link MeterRegistry}. Micrometer is an optional dependency of
+ * BinClient, and has to be added separately in order to use this listener.
+ *
+ * <p>Recorded meters, each tagged with <code>server</code>, <code>operation</code> and <code>method</code>:
+ * <ul>
+ * <li><code>binclient.requests</code> - timer of whole requests, additionally tagged with <code>status</code>,
+ * <code>outcome</code> and <code>exception</code></li>
+ * <li><code>binclient.requests.phase</code> - timer of the connection phases, additionally tagged with
+ * <code>phase</code> (<code>dns</code>, <code>connect</code>, <code>tls</code> or <code>ttfb</code>)</li>
+ * <li><code>binclient.requests.size</code> and <code>binclient.responses.size</code> - body sizes in bytes</li>
+ * <li><code>binclient.requests.retries</code> - retries per request</li>
+ * </ul>
+ */
+public final class MicrometerRequestListener implements RequestListener {
+
+    private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+
+    /**
+     * Creates a new listener, publishing percentile histograms of the request timers
+     *
+     * @param registry meter registry
+     */
+    public MicrometerRequestListener(MeterRegistry registry) {
+        this(registry, true);
+    }
+
+    /**
+     * Creates a new listener
+     *
+     * @param registry            meter registry
+     * @param percentileHistogram whenever percentile histograms of the timers should be published
+     */
+    public MicrometerRequestListener(MeterRegistry registry, boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    @Override
+    public void onComplete(RequestMetrics metrics) {
+        Tags tags = Tags.of(
+                "server", metrics.getServer(),
+                "operation", metrics.getOperation(),
+                "method", metrics.getMethod()
+        );
+        Throwable error = metrics.getError();
+        Timer.builder("binclient.requests")
+                .description("Requests to bin servers, including retries")
+                .tags(tags)
+                .tag("status", metrics.getStatusCode() < 0 ? "NONE" : Integer.toString(metrics.getStatusCode()))
+                .tag("outcome", metrics.isSuccessful() ? "SUCCESS" : "FAILURE")
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry)
+                .record(metrics.getDurationNanos(), TimeUnit.NANOSECONDS);
+
+        recordPhase(tags, "dns", metrics.getDnsNanos());
+        recordPhase(tags, "connect", metrics.getConnectNanos());
+        recordPhase(tags, "tls", metrics.getTlsNanos());
+        recordPhase(tags, "ttfb", metrics.getTimeToFirstByteNanos());
+
+        recordSize("binclient.requests.size", "Sizes of request bodies", tags, metrics.getRequestBytes());
+        recordSize("binclient.responses.size", "Sizes of response bodies", tags, metrics.getResponseBytes());
+
+        DistributionSummary.builder("binclient.requests.retries")
+                .description("Retries per request")
+                .tags(tags)
+                .register(registry)
+                .record(metrics.getRetries());
+    }
+
+    private void recordPhase(Tags tags, String phase, long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        Timer.builder("binclient.requests.phase")
+                .description("Connection phases of requests to bin servers")
+                .tags(tags)
+                .tag("phase", phase)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordSize(String name, String description, Tags tags, long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry)
+                .record(bytes);
+    }
+}
@@ -22,6 +22,9 @@
 */
 package com.mrivanplays.binclient.paste;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Represents a paste
  */
@@ -41,6 +44,19 @@ public interface Paste {
      */
     String getBody();
 
+    /**
+     * Returns the raw bytes of the body, exactly as the server sent them when available, and UTF-8 encoded
+     * otherwise. Pastes which are only forwarded or hashed should use this over {@link #getBody()}, as it doesn't
+     * decode the body.
+     *
+     * @return read-only buffer of the body
+     */
+    default ByteBuffer getBodyBytes() {
+        String body = getBody();
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
     /**
      * Returns the url of the bin.
      *
@@ -37,6 +37,13 @@ public class GhostbinPasteImpl extends PasteImpl implements GhostbinPaste {
         this.encrypted = encrypted;
     }
 
+    public GhostbinPasteImpl(String id, byte[] body, String url, Language language, String expiration, boolean encrypted) {
+        super(id, body, url);
+        this.language = language;
+        this.expiration = expiration;
+        this.encrypted = encrypted;
+    }
+
     @Override
     public Language getLanguage() {
         return language;
@@ -28,22 +28,32 @@ import java.time.OffsetDateTime;
 
 public class IvanBinPasteImpl extends PasteImpl implements IvanBinPaste {
 
-    private OffsetDateTime createdAt;
-    private OffsetDateTime expiresAt;
+    private LazyDateTime createdAt;
+    private LazyDateTime expiresAt;
 
     public IvanBinPasteImpl(String id, String body, String url, OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+        this(id, body, url, LazyDateTime.of(createdAt), LazyDateTime.of(expiresAt));
+    }
+
+    public IvanBinPasteImpl(String id, String body, String url, LazyDateTime createdAt, LazyDateTime expiresAt) {
         super(id, body, url);
         this.createdAt = createdAt;
         this.expiresAt = expiresAt;
     }
 
+    public IvanBinPasteImpl(String id, byte[] body, String url, OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+        super(id, body, url);
+        this.createdAt = LazyDateTime.of(createdAt);
+        this.expiresAt = LazyDateTime.of(expiresAt);
+    }
+
     @Override
     public OffsetDateTime getCreatedAt() {
-        return createdAt;
+        return createdAt.get();
     }
 
     @Override
     public OffsetDateTime getExpiresAt() {
-        return expiresAt;
+        return expiresAt.get();
     }
 }
@@ -0,0 +1,80 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.paste.impl;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Holds a date time, which is parsed from its text only once it is first requested.
+ */
+public final class LazyDateTime {
+
+    private static final LazyDateTime NULL = new LazyDateTime(null, null, null);
+
+    private final String text;
+    private final DateTimeFormatter formatter;
+    private volatile OffsetDateTime value;
+
+    private LazyDateTime(OffsetDateTime value, String text, DateTimeFormatter formatter) {
+        this.value = value;
+        this.text = text;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Wraps an already parsed date time
+     *
+     * @param value date time, may be null
+     * @return lazy date time
+     */
+    public static LazyDateTime of(OffsetDateTime value) {
+        return value == null ? NULL : new LazyDateTime(value, null, null);
+    }
+
+    /**
+     * Creates a date time, which is parsed from the specified text with the specified formatter once requested
+     *
+     * @param text      text, may be null
+     * @param formatter formatter
+     * @return lazy date time
+     */
+    public static LazyDateTime parse(String text, DateTimeFormatter formatter) {
+        return text == null ? NULL : new LazyDateTime(null, text, formatter);
+    }
+
+    /**
+     * Returns the date time, parsing it if not done yet
+     *
+     * @return date time, or <code>null</code> if none
+     * @throws java.time.format.DateTimeParseException if the text can't be parsed
+     */
+    public OffsetDateTime get() {
+        OffsetDateTime value = this.value;
+        if (value == null && text != null) {
+            value = OffsetDateTime.parse(text, formatter);
+            this.value = value;
+        }
+        return value;
+    }
+}
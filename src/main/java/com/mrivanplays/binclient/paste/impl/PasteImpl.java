@@ -24,10 +24,14 @@ package com.mrivanplays.binclient.paste.impl;
 
 import com.mrivanplays.binclient.paste.Paste;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class PasteImpl implements Paste {
 
     private String id;
     private String body;
+    private byte[] bodyBytes;
     private String url;
 
     public PasteImpl(String id, String body, String url) {
@@ -36,6 +40,20 @@ public class PasteImpl implements Paste {
         this.url = url;
     }
 
+    /**
+     * Creates a paste, holding the raw bytes of the body. The body is decoded as UTF-8 the first time
+     * {@link #getBody()} is called.
+     *
+     * @param id   id
+     * @param body raw body, not copied
+     * @param url  url
+     */
+    public PasteImpl(String id, byte[] body, String url) {
+        this.id = id;
+        this.bodyBytes = body;
+        this.url = url;
+    }
+
     @Override
     public String getId() {
         return id;
@@ -43,9 +61,34 @@ public class PasteImpl implements Paste {
 
     @Override
     public String getBody() {
+        String body = this.body;
+        if (body == null && bodyBytes != null) {
+            // racy, but decoding twice is harmless
+            body = new String(bodyBytes, StandardCharsets.UTF_8);
+            this.body = body;
+        }
         return body;
     }
 
+    @Override
+    public ByteBuffer getBodyBytes() {
+        if (bodyBytes != null) {
+            return ByteBuffer.wrap(bodyBytes).asReadOnlyBuffer();
+        }
+        return Paste.super.getBodyBytes();
+    }
+
+    /**
+     * Returns the approximate amount of bytes, the body of this paste retains in memory.
+     *
+     * @return retained body size
+     */
+    public long getRetainedBodySize() {
+        long size = bodyBytes == null ? 0 : bodyBytes.length;
+        String body = this.body;
+        return body == null ? size : size + 2L * body.length();
+    }
+
     @Override
     public String getUrl() {
         return url;
@@ -28,18 +28,28 @@ import java.time.OffsetDateTime;
 
 public class SourcebinPasteImpl extends PasteImpl implements SourcebinPaste {
 
-    private OffsetDateTime createdAt;
+    private LazyDateTime createdAt;
     private String ownerId;
 
     public SourcebinPasteImpl(String id, String body, String url, OffsetDateTime createdAt, String ownerId) {
+        this(id, body, url, LazyDateTime.of(createdAt), ownerId);
+    }
+
+    public SourcebinPasteImpl(String id, String body, String url, LazyDateTime createdAt, String ownerId) {
         super(id, body, url);
         this.createdAt = createdAt;
         this.ownerId = ownerId;
     }
 
+    public SourcebinPasteImpl(String id, byte[] body, String url, OffsetDateTime createdAt, String ownerId) {
+        super(id, body, url);
+        this.createdAt = LazyDateTime.of(createdAt);
+        this.ownerId = ownerId;
+    }
+
     @Override
     public OffsetDateTime getCreatedAt() {
-        return createdAt;
+        return createdAt.get();
     }
 
     @Override
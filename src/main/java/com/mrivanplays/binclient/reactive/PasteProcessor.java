@@ -0,0 +1,284 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.reactive;
+
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A Reactive Streams {@link Processor}, running a request for every input it receives and emitting the values in the
+ * order of the inputs. Inputs are only requested from upstream while the subscriber has outstanding demand, and at most
+ * <code>concurrency</code> requests are in flight (or completed, but not yet emitted) at once, so a slow subscriber
+ * throttles the requests. On Java 9 and later, <code>org.reactivestreams.FlowAdapters</code> adapts it to
+ * {@link java.util.concurrent.Flow}.
+ * <p>
+ * The first failed request fails the stream: the subscriber gets <code>onError</code>, the upstream subscription and
+ * the requests in flight are cancelled. A processor supports a single subscriber.
+ *
+ * @param <I> type of input
+ * @param <T> type of value, retrieved for each input
+ */
+public final class PasteProcessor<I, T> implements Processor<I, T> {
+
+    private final Function<I, CompletableFuture<T>> request;
+    private final int concurrency;
+
+    private final Queue<CompletableFuture<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicLong requestedUpstream = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Subscription upstream;
+    private volatile Subscriber<? super T> downstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    private PasteProcessor(Function<I, CompletableFuture<T>> request, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency < 1: " + concurrency);
+        }
+        this.request = Objects.requireNonNull(request, "request");
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Creates a processor, creating a paste for every body it receives and emitting the ids.
+     *
+     * @param creator     function, creating the request which creates a paste, e.g. <code>server::createPaste</code>
+     * @param concurrency maximum amount of requests in flight
+     * @return processor
+     */
+    public static PasteProcessor<String, String> createPastes(Function<String, RestRequest<String>> creator,
+                                                              int concurrency) {
+        return of(body -> creator.apply(body).future(), concurrency);
+    }
+
+    /**
+     * Creates a processor, creating a paste on the specified service for every body it receives and emitting the ids.
+     *
+     * @param service     paste service
+     * @param concurrency maximum amount of requests in flight
+     * @return processor
+     */
+    public static PasteProcessor<String, String> createPastes(PasteService<?> service, int concurrency) {
+        return createPastes(service::createPaste, concurrency);
+    }
+
+    /**
+     * Creates a processor, retrieving the paste with every id it receives from the specified service and emitting the
+     * pastes.
+     *
+     * @param service     paste service
+     * @param concurrency maximum amount of requests in flight
+     * @param <P>         type of paste
+     * @return processor
+     */
+    public static <P extends Paste> PasteProcessor<String, P> retrievePastes(PasteService<P> service, int concurrency) {
+        return of(id -> service.retrievePaste(id).future(), concurrency);
+    }
+
+    /**
+     * Creates a processor, running the specified request for every input it receives and emitting the values.
+     *
+     * @param request     function, starting the request for an input
+     * @param concurrency maximum amount of requests in flight
+     * @param <I>         type of input
+     * @param <T>         type of value
+     * @return processor
+     */
+    public static <I, T> PasteProcessor<I, T> of(Function<I, CompletableFuture<T>> request, int concurrency) {
+        return new PasteProcessor<>(request, concurrency);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("PasteProcessor only supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Requested a non-positive amount: " + n));
+                    return;
+                }
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                drain();
+            }
+        });
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        Objects.requireNonNull(subscription, "subscription");
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(I input) {
+        Objects.requireNonNull(input, "input");
+        requestedUpstream.decrementAndGet();
+        CompletableFuture<T> future;
+        try {
+            future = Objects.requireNonNull(request.apply(input), "request returned null");
+        } catch (Throwable e) {
+            fail(e);
+            return;
+        }
+        pendingCount.incrementAndGet();
+        pending.offer(future);
+        future.whenComplete((value, failure) -> drain());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable, "throwable");
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    private void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        drain();
+    }
+
+    /**
+     * Emits completed values and requests more inputs. Runs on whichever thread signalled last, but never
+     * concurrently, so the subscriber is signalled serially.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Subscriber<? super T> subscriber = downstream;
+            if (!terminated && subscriber != null) {
+                emit(subscriber);
+            }
+            if (!terminated && (cancelled || error != null)) {
+                Subscription subscription = upstream;
+                if (subscription != null && !upstreamDone) {
+                    subscription.cancel();
+                }
+                pending.forEach(future -> future.cancel(true));
+                pending.clear();
+                if (cancelled) {
+                    terminated = true;
+                } else if (subscriber != null) {
+                    terminated = true;
+                    subscriber.onError(error);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Subscriber<? super T> subscriber) {
+        CompletableFuture<T> head;
+        while (!cancelled && error == null && demand.get() > 0 && (head = pending.peek()) != null && head.isDone()) {
+            T value;
+            try {
+                value = head.join();
+            } catch (CompletionException e) {
+                error = e.getCause();
+                return;
+            } catch (Throwable e) {
+                error = e;
+                return;
+            }
+            pending.poll();
+            pendingCount.decrementAndGet();
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            subscriber.onNext(value);
+        }
+        if (cancelled || error != null) {
+            return;
+        }
+        if (upstreamDone && pending.isEmpty()) {
+            terminated = true;
+            subscriber.onComplete();
+            return;
+        }
+        Subscription subscription = upstream;
+        if (subscription != null && !upstreamDone) {
+            long wanted = Math.min(concurrency, demand.get()) - pendingCount.get() - requestedUpstream.get();
+            if (wanted > 0) {
+                requestedUpstream.addAndGet(wanted);
+                subscription.request(wanted);
+            }
+        }
+    }
+}
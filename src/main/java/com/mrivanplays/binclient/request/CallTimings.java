@@ -0,0 +1,61 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+/**
+ * Holds the timestamps of a single call, filled in by {@link TimingEventListener}. Attached to the call's request as
+ * a tag.
+ */
+final class CallTimings {
+
+    volatile long dnsStart;
+    volatile long dnsEnd;
+    volatile long connectStart;
+    volatile long connectEnd;
+    volatile long secureConnectStart;
+    volatile long secureConnectEnd;
+    volatile long requestEnd;
+    volatile long responseHeadersStart;
+    volatile long requestBytes = -1;
+    volatile long responseBytes = -1;
+
+    long dnsNanos() {
+        return between(dnsStart, dnsEnd);
+    }
+
+    long connectNanos() {
+        return between(connectStart, connectEnd);
+    }
+
+    long tlsNanos() {
+        return between(secureConnectStart, secureConnectEnd);
+    }
+
+    long timeToFirstByteNanos() {
+        return between(requestEnd, responseHeadersStart);
+    }
+
+    private static long between(long start, long end) {
+        return start == 0 || end == 0 ? -1 : end - start;
+    }
+}
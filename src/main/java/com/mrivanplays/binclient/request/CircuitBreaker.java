@@ -0,0 +1,332 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Represents a circuit breaker, guarding the requests to a single server. It records the outcome of the last calls in
+ * a sliding window. Once the share of failed or slow calls in that window reaches its threshold, the breaker opens
+ * and calls fail immediately with a {@link CircuitBreakerOpenException} instead of waiting for a timeout. After a
+ * while, the breaker lets a few probe calls through (half-open), and closes again if they succeed. Permits are tagged
+ * with the state they were handed out in, so calls outliving that state don't count towards the next one.
+ */
+public final class CircuitBreaker {
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int probeCalls;
+    private final LongSupplier nanoTime;
+
+    private State state = State.CLOSED;
+    private final byte[] window;
+    private int windowPosition;
+    private int recordedCalls;
+    private int failedCalls;
+    private int slowCalls;
+    private long openedAt;
+    private int probesPermitted;
+    // incremented on every transition, permits of an earlier generation are ignored
+    private long generation;
+
+    private CircuitBreaker(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallNanos = builder.slowCallDuration.toNanos();
+        this.openNanos = builder.openDuration.toNanos();
+        this.probeCalls = Math.min(builder.probeCalls, builder.windowSize);
+        this.nanoTime = builder.nanoTime;
+        this.window = new byte[windowSize];
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Represents a state of a circuit breaker
+     */
+    public enum State {
+        /**
+         * Calls are permitted and their outcome is recorded.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * A limited amount of probe calls is permitted, deciding whenever the breaker closes or opens again.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Asks for permission to make a call. Every permitted call must be followed by {@link #onSuccess(long, long)},
+     * {@link #onFailure(long, long)} or {@link #releasePermission(long)} with the returned permit.
+     *
+     * @return permit, or -1 if the call is not permitted
+     */
+    public synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openNanos) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return generation;
+        }
+        if (probesPermitted >= probeCalls) {
+            return -1;
+        }
+        probesPermitted++;
+        return generation;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param permit        permit of the call
+     * @param durationNanos duration of the call in nanoseconds
+     */
+    public synchronized void onSuccess(long permit, long durationNanos) {
+        record(permit, durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    /**
+     * Records a failed call.
+     *
+     * @param permit        permit of the call
+     * @param durationNanos duration of the call in nanoseconds
+     */
+    public synchronized void onFailure(long permit, long durationNanos) {
+        record(permit, (byte) (FAILED | (durationNanos >= slowCallNanos ? SLOW : 0)));
+    }
+
+    /**
+     * Gives back the permit of a call, which was cancelled before its outcome was known.
+     *
+     * @param permit permit of the call
+     */
+    public synchronized void releasePermission(long permit) {
+        if (permit == generation && state == State.HALF_OPEN && probesPermitted > 0) {
+            probesPermitted--;
+        }
+    }
+
+    private void record(long permit, byte outcome) {
+        if (permit != generation) {
+            // a call, permitted before the last transition, completed late
+            return;
+        }
+        byte evicted = window[windowPosition];
+        if (recordedCalls == windowSize) {
+            failedCalls -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recordedCalls++;
+        }
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % windowSize;
+        failedCalls += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+
+        if (state == State.HALF_OPEN) {
+            if (recordedCalls >= probeCalls) {
+                transition(exceedsThresholds() ? State.OPEN : State.CLOSED);
+            }
+        } else if (recordedCalls >= minimumCalls && exceedsThresholds()) {
+            transition(State.OPEN);
+        }
+    }
+
+    private boolean exceedsThresholds() {
+        return failedCalls >= failureRateThreshold * recordedCalls || slowCalls >= slowCallRateThreshold * recordedCalls;
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+        windowPosition = 0;
+        probesPermitted = 0;
+        if (to == State.OPEN) {
+            openedAt = nanoTime.getAsLong();
+        }
+    }
+
+    /**
+     * Represents a builder of {@link CircuitBreaker}
+     */
+    public static final class Builder {
+
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private double slowCallRateThreshold = 1;
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int probeCalls = 3;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the amount of the last calls, whose outcome is considered. Defaults to 20.
+         *
+         * @param windowSize window size
+         * @return this instance for chaining
+         */
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("windowSize < 1: " + windowSize);
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Sets the amount of calls which have to be recorded before the breaker may open. Defaults to 10.
+         *
+         * @param minimumCalls minimum calls
+         * @return this instance for chaining
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            if (minimumCalls < 1) {
+                throw new IllegalArgumentException("minimumCalls < 1: " + minimumCalls);
+            }
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Sets the share of failed calls, between 0 and 1, at which the breaker opens. Defaults to 0.5.
+         *
+         * @param failureRateThreshold failure rate threshold
+         * @return this instance for chaining
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the share of slow calls, between 0 and 1, at which the breaker opens. Defaults to 1.
+         *
+         * @param slowCallRateThreshold slow call rate threshold
+         * @return this instance for chaining
+         */
+        public Builder slowCallRateThreshold(double slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the duration, from which on a call counts as slow. Defaults to 5 seconds.
+         *
+         * @param slowCallDuration slow call duration
+         * @return this instance for chaining
+         */
+        public Builder slowCallDuration(Duration slowCallDuration) {
+            this.slowCallDuration = Objects.requireNonNull(slowCallDuration, "slowCallDuration");
+            return this;
+        }
+
+        /**
+         * Sets the time the breaker stays open, before permitting probe calls. Defaults to 30 seconds.
+         *
+         * @param openDuration open duration
+         * @return this instance for chaining
+         */
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = Objects.requireNonNull(openDuration, "openDuration");
+            return this;
+        }
+
+        /**
+         * Sets the amount of probe calls, permitted while half-open. Defaults to 3.
+         *
+         * @param probeCalls probe calls
+         * @return this instance for chaining
+         */
+        public Builder probeCalls(int probeCalls) {
+            if (probeCalls < 1) {
+                throw new IllegalArgumentException("probeCalls < 1: " + probeCalls);
+            }
+            this.probeCalls = probeCalls;
+            return this;
+        }
+
+        /**
+         * Sets the time source, used to measure the open duration. Defaults to {@link System#nanoTime()}.
+         *
+         * @param nanoTime time source in nanoseconds
+         * @return this instance for chaining
+         */
+        Builder nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = Objects.requireNonNull(nanoTime, "nanoTime");
+            return this;
+        }
+
+        /**
+         * Builds the circuit breaker
+         *
+         * @return circuit breaker
+         */
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the compression settings of {@link RestRequest RestRequests}. Request bodies are compressed with the
+ * configured {@link Encoding} and sent with a <code>Content-Encoding</code> header. Few bin servers accept compressed
+ * bodies, so if a host answers one with 415 (or with 400, while the uncompressed body is accepted), the request is
+ * resent uncompressed and that host's bodies are no longer compressed. Responses encoded with gzip, deflate or any
+ * registered {@link ContentDecoder} are decoded transparently.
+ * <p>
+ * Instances remember the hosts which don't accept compressed bodies, and thus should be reused.
+ */
+public final class Compression {
+
+    private final Encoding requestEncoding;
+    private final long minimumSize;
+    private final Map<String, ContentDecoder> decoders;
+    private final String acceptEncoding;
+    private final Set<String> uncompressedHosts = ConcurrentHashMap.newKeySet();
+
+    private Compression(Builder builder) {
+        this.requestEncoding = builder.requestEncoding;
+        this.minimumSize = builder.minimumSize;
+        this.decoders = Collections.unmodifiableMap(new LinkedHashMap<>(builder.decoders));
+        StringBuilder acceptEncoding = new StringBuilder("gzip, deflate");
+        for (String encoding : decoders.keySet()) {
+            acceptEncoding.append(", ").append(encoding);
+        }
+        this.acceptEncoding = acceptEncoding.toString();
+    }
+
+    /**
+     * Creates new settings, compressing request bodies of at least 1 KB with gzip.
+     *
+     * @return compression
+     */
+    public static Compression gzip() {
+        return builder().requestEncoding(Encoding.GZIP).build();
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the encoding, request bodies are compressed with.
+     *
+     * @return request encoding, or <code>null</code> if request bodies are not compressed
+     */
+    public Encoding getRequestEncoding() {
+        return requestEncoding;
+    }
+
+    /**
+     * Returns the minimum size of request bodies to compress. Bodies of unknown size are always compressed.
+     *
+     * @return minimum size in bytes
+     */
+    public long getMinimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     * Returns the decoder, registered for the specified content encoding.
+     *
+     * @param encoding content encoding, e.g. <code>br</code>
+     * @return decoder, or <code>null</code> if none
+     */
+    public ContentDecoder getDecoder(String encoding) {
+        return decoders.get(encoding.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the <code>Accept-Encoding</code> header value, advertising every encoding that can be decoded.
+     *
+     * @return accept encoding
+     */
+    public String getAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * Returns whenever request bodies are compressed when sent to the specified host. This is <code>false</code>
+     * once the host refused a compressed body.
+     *
+     * @param host host
+     * @return <code>true</code> if compressed, <code>false</code> otherwise
+     */
+    public boolean isCompressing(String host) {
+        return requestEncoding != null && !uncompressedHosts.contains(host);
+    }
+
+    void disableCompression(String host) {
+        uncompressedHosts.add(host);
+    }
+
+    /**
+     * Represents an encoding of request bodies
+     */
+    public enum Encoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String name;
+
+        Encoding(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the <code>Content-Encoding</code> header value of this encoding
+         *
+         * @return header value
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Represents a builder of {@link Compression}
+     */
+    public static final class Builder {
+
+        private Encoding requestEncoding;
+        private long minimumSize = 1024;
+        private final Map<String, ContentDecoder> decoders = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the encoding, request bodies are compressed with. <code>null</code>, the default, sends them
+         * uncompressed and only decodes responses.
+         *
+         * @param requestEncoding request encoding
+         * @return this instance for chaining
+         */
+        public Builder requestEncoding(Encoding requestEncoding) {
+            this.requestEncoding = requestEncoding;
+            return this;
+        }
+
+        /**
+         * Sets the minimum size of request bodies to compress. Defaults to 1024 bytes; smaller bodies rarely get
+         * smaller.
+         *
+         * @param minimumSize minimum size in bytes
+         * @return this instance for chaining
+         */
+        public Builder minimumSize(long minimumSize) {
+            if (minimumSize < 0) {
+                throw new IllegalArgumentException("minimumSize < 0: " + minimumSize);
+            }
+            this.minimumSize = minimumSize;
+            return this;
+        }
+
+        /**
+         * Registers a decoder for responses with the specified content encoding, which is then advertised in the
+         * <code>Accept-Encoding</code> header.
+         *
+         * @param encoding content encoding, e.g. <code>br</code> or <code>zstd</code>
+         * @param decoder  decoder
+         * @return this instance for chaining
+         */
+        public Builder decoder(String encoding, ContentDecoder decoder) {
+            String name = encoding.toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("deflate") || name.equals("identity")) {
+                throw new IllegalArgumentException("Content encoding '" + encoding + "' is built in");
+            }
+            decoders.put(name, Objects.requireNonNull(decoder, "decoder"));
+            return this;
+        }
+
+        /**
+         * Builds the compression settings
+         *
+         * @return compression
+         */
+        public Compression build() {
+            return new Compression(this);
+        }
+    }
+}
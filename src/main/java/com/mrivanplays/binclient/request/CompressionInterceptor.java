@@ -0,0 +1,192 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Applies the {@link Compression} of calls, made by {@link RestRequest RestRequests} with one. The shared client and
+ * clients built by {@link com.mrivanplays.binclient.BinClient.Builder} already have it installed; servers install it
+ * into other clients once compression is set. Other calls are not affected.
+ * <p>
+ * Stacked response encodings (e.g. <code>Content-Encoding: gzip, br</code>) are decoded in reverse order. If any of
+ * them can't be decoded, the response is left encoded.
+ */
+public final class CompressionInterceptor implements Interceptor {
+
+    /**
+     * The interceptor instance
+     */
+    public static final CompressionInterceptor INSTANCE = new CompressionInterceptor();
+
+    private CompressionInterceptor() {
+    }
+
+    /**
+     * Returns the specified client if it has this interceptor installed, or a copy of it (sharing its connection pool
+     * and dispatcher) which has.
+     *
+     * @param client http client
+     * @return http client with this interceptor
+     */
+    public static OkHttpClient install(OkHttpClient client) {
+        if (client.interceptors().contains(INSTANCE)) {
+            return client;
+        }
+        return client.newBuilder().addInterceptor(INSTANCE).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Compression compression = request.tag(Compression.class);
+        if (compression == null) {
+            return chain.proceed(request);
+        }
+        Request.Builder builder = request.newBuilder();
+        boolean decode = request.header("Accept-Encoding") == null;
+        if (decode) {
+            // replaces okhttp's own gzip handling, which only applies if it added the header itself
+            builder.header("Accept-Encoding", compression.getAcceptEncoding());
+        }
+        RequestBody body = request.body();
+        String host = request.url().host();
+        boolean compressed = body != null
+                && request.header("Content-Encoding") == null
+                && compression.isCompressing(host)
+                && (body.contentLength() < 0 || body.contentLength() >= compression.getMinimumSize());
+        if (compressed) {
+            Compression.Encoding encoding = compression.getRequestEncoding();
+            builder.header("Content-Encoding", encoding.getName()).method(request.method(), compress(body, encoding));
+        }
+
+        Response response = chain.proceed(builder.build());
+        if (compressed && (response.code() == 415 || response.code() == 400)) {
+            boolean unsupported = response.code() == 415;
+            if (unsupported) {
+                compression.disableCompression(host);
+            }
+            if (!body.isOneShot()) {
+                response.close();
+                response = chain.proceed(builder.removeHeader("Content-Encoding").method(request.method(), body).build());
+                if (!unsupported && response.isSuccessful()) {
+                    // a bad request only if compressed, so the body's encoding is what the server refused
+                    compression.disableCompression(host);
+                }
+            }
+        }
+        return decode ? decode(request, response, compression) : response;
+    }
+
+    private static RequestBody compress(RequestBody body, Compression.Encoding encoding) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                BufferedSink compressed = Okio.buffer(encoding == Compression.Encoding.GZIP
+                        ? new GzipSink(sink)
+                        : new DeflaterSink(sink, new Deflater()));
+                body.writeTo(compressed);
+                compressed.close();
+            }
+        };
+    }
+
+    private static Response decode(Request request, Response response, Compression compression) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null || request.method().equals("HEAD") || response.code() == 204 || response.code() == 304) {
+            return response;
+        }
+        // in the order they were applied, across repeated headers too
+        List<String> encodings = new ArrayList<>();
+        for (String header : response.headers("Content-Encoding")) {
+            for (String encoding : header.split(",")) {
+                encoding = encoding.trim().toLowerCase(Locale.ROOT);
+                if (!encoding.isEmpty() && !encoding.equals("identity")) {
+                    encodings.add(encoding);
+                }
+            }
+        }
+        for (String encoding : encodings) {
+            if (!encoding.equals("gzip") && !encoding.equals("deflate") && compression.getDecoder(encoding) == null) {
+                return response;
+            }
+        }
+        if (encodings.isEmpty()) {
+            return response;
+        }
+        Source source = body.source();
+        for (int i = encodings.size() - 1; i >= 0; i--) {
+            String encoding = encodings.get(i);
+            switch (encoding) {
+                case "gzip":
+                    source = new GzipSource(source);
+                    break;
+                case "deflate":
+                    source = new InflaterSource(source, new Inflater());
+                    break;
+                default:
+                    source = Okio.source(compression.getDecoder(encoding).decode(Okio.buffer(source).inputStream()));
+            }
+        }
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(body.contentType(), -1, Okio.buffer(source)))
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Represents a decoder of a response <code>Content-Encoding</code>, registered with {@link
+ * Compression.Builder#decoder(String, ContentDecoder)}. gzip and deflate are decoded out of the box; others, such as
+ * Brotli (<code>org.brotli.dec.BrotliInputStream::new</code>) or zstd (<code>com.github.luben.zstd.ZstdInputStream::new</code>),
+ * can be plugged in without BinClient depending on their libraries.
+ */
+@FunctionalInterface
+public interface ContentDecoder {
+
+    /**
+     * Wraps the specified encoded stream into a stream of the decoded bytes
+     *
+     * @param in encoded stream
+     * @return decoded stream
+     * @throws IOException if an I/O error occurs
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,264 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a policy for hedging idempotent requests: if no response arrived within a delay, an identical second
+ * request is sent and whichever responds first is used, while the other one is cancelled. The delay is the configured
+ * percentile of the recently observed latencies, so only the slowest requests are hedged. The extra load hedging adds
+ * is capped to a share of all requests.
+ *
+ * <p>A policy learns from every request it is used for, so one instance should be shared by all requests to a
+ * server.
+ */
+public final class HedgePolicy {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long initialDelayNanos;
+    private final int minSamples;
+    private final double maxExtraLoad;
+
+    private final long[] samples;
+    private int samplePosition;
+    private int sampleCount;
+    private int sinceRecompute;
+    private boolean computed;
+    private volatile long delayNanos;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    private HedgePolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelayNanos = builder.minDelay.toNanos();
+        this.maxDelayNanos = builder.maxDelay.toNanos();
+        this.initialDelayNanos = builder.initialDelay.toNanos();
+        this.minSamples = builder.minSamples;
+        this.maxExtraLoad = builder.maxExtraLoad;
+        this.samples = new long[builder.sampleSize];
+        this.delayNanos = clamp(initialDelayNanos);
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the delay after which a hedge request is sent.
+     *
+     * @return delay in nanoseconds
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Returns how many hedge requests were sent.
+     *
+     * @return hedge count
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Records a request, which may be hedged.
+     */
+    void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * Takes permission to send a hedge request, if the extra load cap allows another one.
+     *
+     * @return <code>true</code> if a hedge may be sent, <code>false</code> otherwise
+     */
+    boolean tryAcquireHedge() {
+        while (true) {
+            long sent = hedges.get();
+            if (sent + 1 > maxExtraLoad * requests.get()) {
+                return false;
+            }
+            if (hedges.compareAndSet(sent, sent + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records the latency of a response.
+     *
+     * @param latencyNanos latency in nanoseconds
+     */
+    synchronized void recordLatency(long latencyNanos) {
+        samples[samplePosition] = latencyNanos;
+        samplePosition = (samplePosition + 1) % samples.length;
+        if (sampleCount < samples.length) {
+            sampleCount++;
+        }
+        if (sampleCount < minSamples) {
+            return;
+        }
+        // computed as soon as there are enough samples, then only every so often
+        if (!computed || ++sinceRecompute >= RECOMPUTE_EVERY) {
+            computed = true;
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            delayNanos = clamp(sorted[(int) Math.min(sampleCount - 1, Math.ceil(percentile * sampleCount) - 1)]);
+        }
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, nanos));
+    }
+
+    /**
+     * Represents a builder of {@link HedgePolicy}
+     */
+    public static final class Builder {
+
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofSeconds(2);
+        private Duration initialDelay = Duration.ofMillis(500);
+        private int minSamples = 20;
+        private int sampleSize = 512;
+        private double maxExtraLoad = 0.1;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the percentile of the observed latencies, after which a hedge is sent. Defaults to 0.95.
+         *
+         * @param percentile percentile, between 0 and 1
+         * @return this instance for chaining
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be in (0, 1]: " + percentile);
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the shortest delay, after which a hedge is sent. Defaults to 10 milliseconds.
+         *
+         * @param minDelay min delay
+         * @return this instance for chaining
+         */
+        public Builder minDelay(Duration minDelay) {
+            this.minDelay = Objects.requireNonNull(minDelay, "minDelay");
+            return this;
+        }
+
+        /**
+         * Sets the longest delay, after which a hedge is sent. Defaults to 2 seconds.
+         *
+         * @param maxDelay max delay
+         * @return this instance for chaining
+         */
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = Objects.requireNonNull(maxDelay, "maxDelay");
+            return this;
+        }
+
+        /**
+         * Sets the delay, used until enough latencies were observed. Defaults to 500 milliseconds.
+         *
+         * @param initialDelay initial delay
+         * @return this instance for chaining
+         */
+        public Builder initialDelay(Duration initialDelay) {
+            this.initialDelay = Objects.requireNonNull(initialDelay, "initialDelay");
+            return this;
+        }
+
+        /**
+         * Sets the amount of latencies, which have to be observed before the percentile is used. Defaults to 20.
+         *
+         * @param minSamples min samples
+         * @return this instance for chaining
+         */
+        public Builder minSamples(int minSamples) {
+            if (minSamples < 1) {
+                throw new IllegalArgumentException("minSamples < 1: " + minSamples);
+            }
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * Sets the amount of the most recent latencies, the percentile is computed of. Defaults to 512.
+         *
+         * @param sampleSize sample size
+         * @return this instance for chaining
+         */
+        public Builder sampleSize(int sampleSize) {
+            if (sampleSize < 1) {
+                throw new IllegalArgumentException("sampleSize < 1: " + sampleSize);
+            }
+            this.sampleSize = sampleSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum share of requests, that may be hedged. Defaults to 0.1, adding at most 10% extra load.
+         *
+         * @param maxExtraLoad max extra load
+         * @return this instance for chaining
+         */
+        public Builder maxExtraLoad(double maxExtraLoad) {
+            if (maxExtraLoad < 0) {
+                throw new IllegalArgumentException("maxExtraLoad < 0: " + maxExtraLoad);
+            }
+            this.maxExtraLoad = maxExtraLoad;
+            return this;
+        }
+
+        /**
+         * Builds the policy
+         *
+         * @return hedge policy
+         */
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Factory of {@link RequestBody request bodies}, which stream their content to the connection instead of holding it
+ * in memory as a {@link String} or byte array.
+ */
+public final class PasteBodies {
+
+    private static final MediaType FORM = MediaType.get("application/x-www-form-urlencoded");
+
+    private PasteBodies() {
+    }
+
+    /**
+     * Creates a request body, streaming the contents of the specified file.
+     *
+     * @param contentType content type
+     * @param path        file
+     * @return request body
+     */
+    public static RequestBody create(MediaType contentType, Path path) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return Files.size(path);
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(path)) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a request body, streaming the contents of the specified input stream. The stream is read only once,
+     * and is closed after its contents were written.
+     *
+     * @param contentType content type
+     * @param in          input stream
+     * @return request body
+     */
+    public static RequestBody create(MediaType contentType, InputStream in) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(in)) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a request body, writing the remaining bytes of the specified buffer. The position of the buffer is not
+     * modified.
+     *
+     * @param contentType content type
+     * @param buffer      buffer
+     * @return request body
+     */
+    public static RequestBody create(MediaType contentType, ByteBuffer buffer) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return buffer.remaining();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(buffer.duplicate());
+            }
+        };
+    }
+
+    /**
+     * Creates a <code>application/x-www-form-urlencoded</code> request body of the specified fields, followed by a
+     * field, whose value is the content of the specified request body. That content is encoded incrementally while
+     * being written, so it is never held in memory as a whole.
+     *
+     * @param fields fields, written before the streamed field
+     * @param name   name of the streamed field
+     * @param value  body, whose content is the value of the streamed field
+     * @return request body
+     */
+    public static RequestBody formEncoded(Map<String, String> fields, String name, RequestBody value) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return FORM;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return value.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                FormEncodingSink encoder = new FormEncodingSink(sink);
+                BufferedSink encoded = Okio.buffer(encoder);
+                for (Map.Entry<String, String> entry : fields.entrySet()) {
+                    encoded.writeUtf8(entry.getKey()).flush();
+                    sink.writeByte('=');
+                    encoded.writeUtf8(entry.getValue()).flush();
+                    sink.writeByte('&');
+                }
+                encoded.writeUtf8(name).flush();
+                sink.writeByte('=');
+                value.writeTo(encoded);
+                encoded.flush();
+            }
+        };
+    }
+
+    /**
+     * A sink, which form encodes every byte written to it, the same way {@link java.net.URLEncoder} does for UTF-8.
+     */
+    private static final class FormEncodingSink implements Sink {
+
+        private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+        private final BufferedSink delegate;
+        private final byte[] in = new byte[8192];
+        private final byte[] out = new byte[in.length * 3];
+
+        FormEncodingSink(BufferedSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                int read = source.read(in, 0, (int) Math.min(byteCount, in.length));
+                byteCount -= read;
+                int length = 0;
+                for (int i = 0; i < read; i++) {
+                    int b = in[i] & 0xFF;
+                    if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                            || b == '.' || b == '-' || b == '*' || b == '_') {
+                        out[length++] = (byte) b;
+                    } else if (b == ' ') {
+                        out[length++] = '+';
+                    } else {
+                        out[length++] = '%';
+                        out[length++] = HEX[b >> 4];
+                        out[length++] = HEX[b & 0xF];
+                    }
+                }
+                delegate.write(out, 0, length);
+            }
+        }
+
+        @Override
+        public void flush() {
+            // the delegate is flushed by whoever owns it
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+
+        @Override
+        public void close() {
+            // the delegate is closed by whoever owns it
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Represents a client side token bucket rate limiter. The bucket refills at a fixed rate and holds up to a burst of
+ * permits. It is lock-free: the whole bucket state is a single timestamp, updated with compare-and-set.
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoTime;
+    // the time at which the bucket would be full again, if no more permits were taken
+    private final AtomicLong fullAt;
+
+    private RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.nanoTime = nanoTime;
+        this.fullAt = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Creates a new rate limiter, allowing the specified amount of permits per second, with bursts of up to
+     * <code>burst</code> permits.
+     *
+     * @param permitsPerSecond sustained rate
+     * @param burst            maximum permits, taken at once after a period of inactivity
+     * @return rate limiter
+     */
+    public static RateLimiter create(double permitsPerSecond, int burst) {
+        return create(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * Creates a new rate limiter, reading the time from the specified source.
+     *
+     * @param permitsPerSecond sustained rate
+     * @param burst            maximum permits, taken at once after a period of inactivity
+     * @param nanoTime         time source in nanoseconds
+     * @return rate limiter
+     */
+    static RateLimiter create(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond <= 0: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst < 1: " + burst);
+        }
+        return new RateLimiter(permitsPerSecond, burst, nanoTime);
+    }
+
+    /**
+     * Takes a permit if one is available right now.
+     *
+     * @return <code>true</code> if a permit was taken, <code>false</code> otherwise
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = nanoTime.getAsLong();
+            long current = fullAt.get();
+            long base = Math.max(current, now);
+            if (base + intervalNanos - now > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes a permit, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Takes a permit without blocking. The returned future is completed once the permit is available, on the common
+     * fork join pool if it had to wait; permits are handed out in the order they were requested.
+     *
+     * @return future, completed once the permit is available
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        return acquireAsync(RequestScheduler.ASYNC_EXECUTOR);
+    }
+
+    /**
+     * Takes a permit without blocking. The returned future is completed once the permit is available, on the
+     * specified executor if it had to wait; permits are handed out in the order they were requested.
+     *
+     * @param executor executor, completing the future
+     * @return future, completed once the permit is available
+     */
+    public CompletableFuture<Void> acquireAsync(Executor executor) {
+        long wait = reserve();
+        if (wait <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        RequestScheduler.schedule(() -> future.complete(null), wait, TimeUnit.NANOSECONDS, executor);
+        return future;
+    }
+
+    /**
+     * Takes a permit, if it is available within the specified time.
+     *
+     * @param timeoutNanos maximum nanoseconds to wait for the permit
+     * @return nanoseconds until the permit is available, 0 if available now, or -1 if no permit was taken, as it
+     * would only be available after the timeout
+     */
+    public long tryReserve(long timeoutNanos) {
+        while (true) {
+            long now = nanoTime.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = Math.max(0, next - now - burstNanos);
+            if (wait > timeoutNanos) {
+                return -1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Takes a permit, which may only be available in the future.
+     *
+     * @return nanoseconds until the permit is available, 0 if available now
+     */
+    public long reserve() {
+        while (true) {
+            long now = nanoTime.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, next - now - burstNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+/**
+ * Represents the metrics of a completed {@link RestRequest}. Connection phases are only measured if the http client
+ * uses the {@link TimingEventListener#FACTORY}, and are -1 otherwise or if the phase didn't happen (e.g. a pooled
+ * connection was reused).
+ */
+public final class RequestMetrics {
+
+    private final String server;
+    private final String operation;
+    private final String method;
+    private final long durationNanos;
+    private final int statusCode;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long dnsNanos;
+    private final long connectNanos;
+    private final long tlsNanos;
+    private final long timeToFirstByteNanos;
+    private final int attempts;
+    private final boolean hedged;
+    private final Throwable error;
+
+    RequestMetrics(String server, String operation, String method, long durationNanos, int statusCode,
+                   long requestBytes, long responseBytes, long dnsNanos, long connectNanos, long tlsNanos,
+                   long timeToFirstByteNanos, int attempts, boolean hedged, Throwable error) {
+        this.server = server;
+        this.operation = operation;
+        this.method = method;
+        this.durationNanos = durationNanos;
+        this.statusCode = statusCode;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.dnsNanos = dnsNanos;
+        this.connectNanos = connectNanos;
+        this.tlsNanos = tlsNanos;
+        this.timeToFirstByteNanos = timeToFirstByteNanos;
+        this.attempts = attempts;
+        this.hedged = hedged;
+        this.error = error;
+    }
+
+    /**
+     * Returns the name of the server, the request was sent to, e.g. <code>hastebin</code>. Defaults to the host.
+     *
+     * @return server
+     */
+    public String getServer() {
+        return server;
+    }
+
+    /**
+     * Returns the operation, the request performed, e.g. <code>create</code>. Defaults to the http method.
+     *
+     * @return operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the http method of the request
+     *
+     * @return method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the time, elapsed from calling the request until it completed, including retries and the time spent
+     * reading the response.
+     *
+     * @return duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Returns the status code of the last response
+     *
+     * @return status code, or -1 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the size of the last request body
+     *
+     * @return bytes, or -1 if unknown
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Returns the size of the last response body
+     *
+     * @return bytes, or -1 if unknown
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Returns the time spent resolving the host of the last call
+     *
+     * @return duration in nanoseconds, or -1 if not measured
+     */
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+
+    /**
+     * Returns the time spent connecting to the server, including the tls handshake, on the last call
+     *
+     * @return duration in nanoseconds, or -1 if not measured
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * Returns the time spent on the tls handshake of the last call
+     *
+     * @return duration in nanoseconds, or -1 if not measured
+     */
+    public long getTlsNanos() {
+        return tlsNanos;
+    }
+
+    /**
+     * Returns the time, elapsed from sending the last request until the response headers started arriving
+     *
+     * @return duration in nanoseconds, or -1 if not measured
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * Returns the amount of attempts, made for the request
+     *
+     * @return attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the amount of retries, made for the request
+     *
+     * @return retries
+     */
+    public int getRetries() {
+        return Math.max(0, attempts - 1);
+    }
+
+    /**
+     * Returns whenever a hedged call was sent for the request
+     *
+     * @return hedged
+     */
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * Returns the error, the request failed with
+     *
+     * @return error, or <code>null</code> if successful
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns whenever the request completed successfully
+     *
+     * @return successful
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMetrics{server=" + server + ", operation=" + operation + ", method=" + method
+                + ", durationNanos=" + durationNanos + ", statusCode=" + statusCode + ", requestBytes=" + requestBytes
+                + ", responseBytes=" + responseBytes + ", dnsNanos=" + dnsNanos + ", connectNanos=" + connectNanos
+                + ", tlsNanos=" + tlsNanos + ", timeToFirstByteNanos=" + timeToFirstByteNanos
+                + ", attempts=" + attempts + ", hedged=" + hedged + ", error=" + error + "}";
+    }
+}
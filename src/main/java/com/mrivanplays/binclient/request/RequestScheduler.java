@@ -0,0 +1,83 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the scheduler, used for delaying work of asynchronous requests (e.g. retries) without blocking a thread. The
+ * scheduler thread only hands due tasks to their executor: tasks may complete futures, running the callers' dependent
+ * stages, which must not stall every other delayed task.
+ */
+final class RequestScheduler {
+
+    /**
+     * The executor, asynchronous work without an executor of its own runs on. Like the default of
+     * {@link java.util.concurrent.CompletableFuture}'s async methods, it is the common pool unless that does not support
+     * parallelism, in which case every task gets a new thread.
+     */
+    static final Executor ASYNC_EXECUTOR = ForkJoinPool.getCommonPoolParallelism() > 1
+            ? ForkJoinPool.commonPool()
+            : task -> new Thread(task).start();
+
+    private RequestScheduler() {
+    }
+
+    /**
+     * Runs the specified task on the specified executor after the specified delay. If the executor rejects it (e.g.
+     * because it was shut down), the task runs on the scheduler thread instead.
+     *
+     * @param task     task
+     * @param delay    delay
+     * @param unit     unit of the delay
+     * @param executor executor, the task is ran on
+     * @return future of the hand-off, which can be cancelled
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        return Holder.SCHEDULER.schedule(() -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }, delay, unit);
+    }
+
+    private static final class Holder {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "BinClient Request Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            // deadlines mostly complete before their timer fires, which is then cancelled
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
@@ -23,6 +23,17 @@
 package com.mrivanplays.binclient.request;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -40,13 +51,128 @@ import okhttp3.Response;
 public final class RestRequest<T> {
 
     private Request request;
-    private OkHttpClient client;
+    private final OkHttpClient client;
     private Function<Response, T> finisher;
+    private RetryPolicy retryPolicy;
+    private RateLimiter rateLimiter;
+    private CircuitBreaker circuitBreaker;
+    private HedgePolicy hedgePolicy;
+    private RequestListener listener;
+    private Deadline deadline;
+    private String server;
+    private String operation;
 
     public RestRequest(Request request, OkHttpClient client, Function<Response, T> finisher) {
         this.request = request;
         this.client = client;
         this.finisher = finisher;
+        this.retryPolicy = isIdempotent(request) ? RetryPolicy.defaults() : RetryPolicy.none();
+    }
+
+    /**
+     * Sets the policy, deciding whenever this request is retried when it fails. Idempotent requests (e.g. retrieving
+     * a paste) use {@link RetryPolicy#defaults()} and other requests (e.g. creating a paste) use {@link
+     * RetryPolicy#none()}, unless set otherwise. Requests, whose body can only be written once, are never retried.
+     *
+     * @param retryPolicy retry policy
+     * @return this instance for chaining
+     */
+    public RestRequest<T> retry(RetryPolicy retryPolicy) {
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+        return this;
+    }
+
+    /**
+     * Sets the rate limiter, a permit of which is taken before every attempt of this request.
+     * {@link #sync()} blocks until the permit is available, while {@link #future()} and {@link #async(Consumer)}
+     * delay the call without blocking. <code>null</code> disables rate limiting.
+     *
+     * @param rateLimiter rate limiter
+     * @return this instance for chaining
+     */
+    public RestRequest<T> rateLimit(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker, guarding every attempt of this request. While it is open, attempts fail immediately
+     * with a {@link CircuitBreakerOpenException}. I/O errors, 5xx and 429 responses count as failures. <code>null</code>
+     * disables the circuit breaker.
+     *
+     * @param circuitBreaker circuit breaker
+     * @return this instance for chaining
+     */
+    public RestRequest<T> circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Sets the hedge policy of this request. It only applies to idempotent requests (e.g. retrieving a paste): if no
+     * response arrived within the policy's delay, an identical request is sent and the first response is used.
+     * <code>null</code> disables hedging.
+     *
+     * @param hedgePolicy hedge policy
+     * @return this instance for chaining
+     */
+    public RestRequest<T> hedge(HedgePolicy hedgePolicy) {
+        this.hedgePolicy = hedgePolicy;
+        return this;
+    }
+
+    /**
+     * Sets the compression of this request's body and response. It is applied by the {@link CompressionInterceptor},
+     * which the http client must have installed, see {@link CompressionInterceptor#install(OkHttpClient)}.
+     * <code>null</code> disables compression.
+     *
+     * @param compression compression
+     * @return this instance for chaining
+     */
+    public RestRequest<T> compression(Compression compression) {
+        this.request = request.newBuilder().tag(Compression.class, compression).build();
+        return this;
+    }
+
+    /**
+     * Sets the listener, notified with the {@link RequestMetrics} of this request once it completed. Connection
+     * phases are only measured if the http client uses the {@link TimingEventListener#FACTORY}. <code>null</code>
+     * disables reporting.
+     *
+     * @param listener request listener
+     * @return this instance for chaining
+     */
+    public RestRequest<T> listener(RequestListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Sets the deadline, by which this request has to complete: connecting, sending, reading the response and
+     * retries included. Retries, which would only be sent after the deadline, are not made. Past the deadline, the
+     * request fails with a {@link DeadlineExceededException}. <code>null</code> disables the deadline, leaving only the
+     * http client's timeouts.
+     *
+     * @param deadline deadline
+     * @return this instance for chaining
+     */
+    public RestRequest<T> deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Sets the server and operation, this request is reported under to the {@link #listener(RequestListener)}. They
+     * default to the host and the http method.
+     *
+     * @param server    server name, e.g. <code>hastebin</code>
+     * @param operation operation, e.g. <code>create</code>
+     * @return this instance for chaining
+     */
+    public RestRequest<T> operation(String server, String operation) {
+        this.server = server;
+        this.operation = operation;
+        return this;
     }
 
     /**
@@ -61,6 +187,18 @@ public final class RestRequest<T> {
         });
     }
 
+    /**
+     * Calls this request synchronously, giving up if it didn't complete within the specified timeout. An earlier
+     * {@link #deadline(Deadline)} still applies.
+     *
+     * @param timeout timeout
+     * @return direct value after call
+     * @throws RequestException if exception caught, caused by a {@link DeadlineExceededException} if timed out
+     */
+    public T sync(Duration timeout) {
+        return deadline(Deadline.after(timeout).min(deadline)).sync();
+    }
+
     /**
      * Calls this request synchronously and provides a exception handler. This may cause the main thread to freeze for a
      * moment.
@@ -69,10 +207,12 @@ public final class RestRequest<T> {
      * @return direct value after call or onFailure given value if fail
      */
     public T sync(Function<Throwable, T> onFailure) {
-        Call call = client.newCall(request);
-        try (Response response = call.execute()) {
-            return finisher.apply(response);
+        try {
+            return execute();
         } catch (Throwable error) {
+            if (error instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             return onFailure.apply(error);
         }
     }
@@ -93,20 +233,503 @@ public final class RestRequest<T> {
      * @param onFailure exception handler
      */
     public void async(Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
+        future().whenComplete((value, error) -> {
+            if (error != null) {
+                onFailure.accept(error);
+                return;
+            }
+            try {
+                onSuccess.accept(value);
+            } catch (Throwable e) {
                 onFailure.accept(e);
             }
+        });
+    }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                try {
-                    onSuccess.accept(finisher.apply(response));
-                } catch (Throwable error) {
-                    onFailure.accept(error);
+    /**
+     * Calls this request asynchronously and returns a {@link CompletableFuture}, completed with the value once the
+     * response arrives. No thread is blocked while waiting for the response, nor while waiting between retries.
+     * Cancelling the returned future cancels the underlying http call.
+     *
+     * @return future
+     */
+    public CompletableFuture<T> future() {
+        AsyncExecution execution = new AsyncExecution();
+        if (execution.recording != null) {
+            execution.whenComplete((value, error) -> execution.recording.report(error));
+        }
+        if (deadline != null) {
+            ScheduledFuture<?> timer = RequestScheduler.schedule(execution::expire, deadline.remainingNanos(), TimeUnit.NANOSECONDS, callbackExecutor());
+            execution.whenComplete((value, error) -> timer.cancel(false));
+        }
+        execution.enqueue(1);
+        return execution;
+    }
+
+    /**
+     * Calls this request asynchronously, same as {@link #future()}, but completes the future exceptionally with a
+     * {@link DeadlineExceededException} and cancels the http call if it didn't complete within the specified timeout.
+     * An earlier {@link #deadline(Deadline)} still applies.
+     *
+     * @param timeout timeout
+     * @return future
+     */
+    public CompletableFuture<T> future(Duration timeout) {
+        return deadline(Deadline.after(timeout).min(deadline)).future();
+    }
+
+    /**
+     * Calls this request synchronously on a thread of the specified executor and returns a {@link CompletableFuture},
+     * completed with the value. Unlike {@link #future()}, a thread is blocked while waiting for the response, which
+     * is cheap on virtual threads, e.g. of {@link VirtualThreads#newExecutor()}.
+     *
+     * @param executor executor
+     * @return future
+     */
+    public CompletableFuture<T> future(Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(execute());
+            } catch (Throwable error) {
+                if (error instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
                 }
+                future.completeExceptionally(error);
             }
         });
+        return future;
+    }
+
+    private T execute() throws IOException, InterruptedException {
+        if (isHedged()) {
+            return await(future());
+        }
+        if (listener == null) {
+            return execute(null);
+        }
+        Recording recording = new Recording();
+        try {
+            T value = execute(recording);
+            recording.report(null);
+            return value;
+        } catch (Throwable error) {
+            recording.report(error);
+            throw error;
+        }
+    }
+
+    private T execute(Recording recording) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (isExpired()) {
+                throw deadlineExceeded(null);
+            }
+            if (rateLimiter != null) {
+                long wait = reservePermit();
+                if (wait < 0) {
+                    throw deadlineExceeded(null);
+                }
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            long permit = acquirePermission();
+            long start = System.nanoTime();
+            Call call = newCall(recording, attempt);
+            Response response;
+            try {
+                response = call.execute();
+                recordOutcome(permit, start, response);
+                if (recording != null) {
+                    recording.onResponse(call, response);
+                }
+            } catch (IOException e) {
+                recordOutcome(permit, start, null);
+                if (recording != null) {
+                    recording.onFailure(call);
+                }
+                if (isExpired()) {
+                    throw deadlineExceeded(e);
+                }
+                long delay = retryDelay(attempt, null);
+                if (delay < 0) {
+                    throw e;
+                }
+                Thread.sleep(delay);
+                continue;
+            }
+            long delay = retryDelay(attempt, response);
+            if (delay >= 0) {
+                response.close();
+                Thread.sleep(delay);
+                continue;
+            }
+            try (Response body = response) {
+                return finisher.apply(body);
+            } catch (RuntimeException e) {
+                // e.g. the body could not be read, as the call timed out
+                if (isExpired() && !(e instanceof DeadlineExceededException)) {
+                    throw deadlineExceeded(e);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private Call newCall(Recording recording, int attempt) {
+        Call call;
+        if (recording == null) {
+            call = client.newCall(request);
+        } else {
+            recording.attempts = attempt;
+            call = client.newCall(request.newBuilder().tag(CallTimings.class, new CallTimings()).build());
+        }
+        if (deadline != null) {
+            // spans connecting, writing the request and reading the whole response; 0 would mean no timeout
+            call.timeout().timeout(Math.max(1, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Returns the executor, delayed work (retries, hedges, deadlines) runs on, as it may complete the caller's future.
+     */
+    private Executor callbackExecutor() {
+        return client.dispatcher().executorService();
+    }
+
+    /**
+     * Returns the nanoseconds until the reserved permit of the rate limiter is available, or -1 if none was reserved,
+     * as it would only be available after the deadline.
+     */
+    private long reservePermit() {
+        return deadline == null ? rateLimiter.reserve() : rateLimiter.tryReserve(deadline.remainingNanos());
+    }
+
+    private boolean isExpired() {
+        return deadline != null && deadline.isExpired();
+    }
+
+    private DeadlineExceededException deadlineExceeded(Throwable cause) {
+        return new DeadlineExceededException("Deadline exceeded while processing request: " + request, cause);
+    }
+
+    private T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RequestException("An error occurred while trying to process request: " + request, cause);
+        }
+    }
+
+    /**
+     * Returns the permit of the circuit breaker, or 0 if there is none.
+     */
+    private long acquirePermission() {
+        if (circuitBreaker == null) {
+            return 0;
+        }
+        long permit = circuitBreaker.tryAcquirePermission();
+        if (permit < 0) {
+            throw new CircuitBreakerOpenException("Circuit breaker is open, not calling " + request);
+        }
+        return permit;
+    }
+
+    private void recordOutcome(long permit, long start, Response response) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        if (response == null || response.code() >= 500 || response.code() == 429) {
+            circuitBreaker.onFailure(permit, duration);
+        } else {
+            circuitBreaker.onSuccess(permit, duration);
+        }
+    }
+
+    /**
+     * Returns the delay before the next attempt, or -1 if the specified attempt should not be retried.
+     */
+    private long retryDelay(int attempt, Response response) {
+        if (request.body() != null && request.body().isOneShot()) {
+            return -1;
+        }
+        long delay = retryPolicy.delayMillis(attempt, response);
+        if (delay >= 0 && deadline != null && TimeUnit.MILLISECONDS.toNanos(delay) >= deadline.remainingNanos()) {
+            // the retry could not complete in time anyway
+            return -1;
+        }
+        return delay;
+    }
+
+    private boolean isHedged() {
+        return hedgePolicy != null && isIdempotent(request);
+    }
+
+    /**
+     * Represents an asynchronous execution of this request, spanning all of its attempts.
+     */
+    private final class AsyncExecution extends CompletableFuture<T> {
+
+        private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+        private final Recording recording = listener == null ? null : new Recording();
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            calls.forEach(Call::cancel);
+            return cancelled;
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable error) {
+            if (isExpired() && !(error instanceof DeadlineExceededException)) {
+                error = deadlineExceeded(error);
+            }
+            return super.completeExceptionally(error);
+        }
+
+        void expire() {
+            if (completeExceptionally(deadlineExceeded(null))) {
+                calls.forEach(Call::cancel);
+            }
+        }
+
+        void enqueue(int attempt) {
+            long wait = rateLimiter == null ? 0 : reservePermit();
+            if (wait < 0) {
+                completeExceptionally(deadlineExceeded(null));
+            } else if (wait > 0) {
+                RequestScheduler.schedule(() -> attempt(attempt), wait, TimeUnit.NANOSECONDS, callbackExecutor());
+            } else {
+                attempt(attempt);
+            }
+        }
+
+        private void attempt(int number) {
+            if (isDone()) {
+                return;
+            }
+            if (isExpired()) {
+                completeExceptionally(deadlineExceeded(null));
+                return;
+            }
+            long permit;
+            try {
+                permit = acquirePermission();
+            } catch (CircuitBreakerOpenException e) {
+                completeExceptionally(e);
+                return;
+            }
+            Attempt attempt = new Attempt(this, number, permit);
+            attempt.send();
+            if (isHedged()) {
+                hedgePolicy.onRequest();
+                RequestScheduler.schedule(attempt::hedge, hedgePolicy.getDelayNanos(), TimeUnit.NANOSECONDS, callbackExecutor());
+            }
+        }
+    }
+
+    /**
+     * Represents a single attempt of an asynchronous execution. If hedged, an attempt consists of two identical calls,
+     * the first response of which settles the attempt.
+     */
+    private final class Attempt {
+
+        private final AsyncExecution execution;
+        private final int number;
+        private final long permit;
+        private final long start = System.nanoTime();
+        private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Attempt(AsyncExecution execution, int number, long permit) {
+            this.execution = execution;
+            this.number = number;
+            this.permit = permit;
+        }
+
+        void send() {
+            outstanding.incrementAndGet();
+            Call call = newCall(execution.recording, number);
+            calls.add(call);
+            execution.calls.add(call);
+            if (execution.isDone()) {
+                // cancelled while this call was being created
+                call.cancel();
+            }
+            long callStart = System.nanoTime();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    Attempt.this.onFailure(call, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    Attempt.this.onResponse(call, callStart, response);
+                }
+            });
+        }
+
+        void hedge() {
+            if (settled.get() || execution.isDone()) {
+                return;
+            }
+            if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+                return;
+            }
+            if (hedgePolicy.tryAcquireHedge()) {
+                if (execution.recording != null) {
+                    execution.recording.hedged = true;
+                }
+                send();
+            }
+        }
+
+        private void onFailure(Call call, IOException e) {
+            execution.calls.remove(call);
+            if (outstanding.decrementAndGet() > 0 || !settled.compareAndSet(false, true)) {
+                // the other call of this attempt is still running, or already settled it
+                return;
+            }
+            if (execution.recording != null) {
+                execution.recording.onFailure(call);
+            }
+            if (call.isCanceled()) {
+                if (isExpired()) {
+                    // cut off by the deadline, which has to count, so a server hanging until then trips the breaker
+                    recordOutcome(permit, start, null);
+                } else if (circuitBreaker != null) {
+                    circuitBreaker.releasePermission(permit);
+                }
+                execution.completeExceptionally(e);
+                return;
+            }
+            recordOutcome(permit, start, null);
+            long delay = retryDelay(number, null);
+            if (delay < 0) {
+                execution.completeExceptionally(e);
+                return;
+            }
+            RequestScheduler.schedule(() -> execution.enqueue(number + 1), delay, TimeUnit.MILLISECONDS, callbackExecutor());
+        }
+
+        private void onResponse(Call call, long callStart, Response response) {
+            execution.calls.remove(call);
+            if (!settled.compareAndSet(false, true)) {
+                response.close();
+                return;
+            }
+            for (Call other : calls) {
+                if (other != call) {
+                    other.cancel();
+                }
+            }
+            if (hedgePolicy != null) {
+                hedgePolicy.recordLatency(System.nanoTime() - callStart);
+            }
+            if (execution.recording != null) {
+                execution.recording.onResponse(call, response);
+            }
+            recordOutcome(permit, start, response);
+            long delay = retryDelay(number, response);
+            if (delay >= 0) {
+                response.close();
+                RequestScheduler.schedule(() -> execution.enqueue(number + 1), delay, TimeUnit.MILLISECONDS, callbackExecutor());
+                return;
+            }
+            T value;
+            try (Response body = response) {
+                value = finisher.apply(body);
+            } catch (Throwable error) {
+                execution.completeExceptionally(error);
+                return;
+            }
+            // completed once the body is closed, so its size is known to the listener
+            execution.complete(value);
+        }
+    }
+
+    /**
+     * Records the metrics of a single execution, spanning all of its attempts, and reports them to the listener.
+     */
+    private final class Recording {
+
+        private final long start = System.nanoTime();
+        private volatile int attempts;
+        private volatile boolean hedged;
+        private volatile Call call;
+        private volatile int statusCode = -1;
+        private volatile long contentLength = -1;
+
+        void onResponse(Call call, Response response) {
+            this.call = call;
+            this.statusCode = response.code();
+            this.contentLength = response.body() == null ? -1 : response.body().contentLength();
+        }
+
+        void onFailure(Call call) {
+            this.call = call;
+        }
+
+        void report(Throwable error) {
+            long duration = System.nanoTime() - start;
+            Call last = call;
+            CallTimings timings = last == null ? null : last.request().tag(CallTimings.class);
+            if (timings == null) {
+                timings = new CallTimings();
+            }
+            long requestBytes = timings.requestBytes;
+            if (requestBytes < 0) {
+                try {
+                    requestBytes = request.body() == null ? 0 : request.body().contentLength();
+                } catch (IOException e) {
+                    requestBytes = -1;
+                }
+            }
+            long responseBytes = timings.responseBytes >= 0 ? timings.responseBytes : contentLength;
+            RequestMetrics metrics = new RequestMetrics(
+                    server != null ? server : request.url().host(),
+                    operation != null ? operation : request.method(),
+                    request.method(),
+                    duration,
+                    statusCode,
+                    requestBytes,
+                    responseBytes,
+                    timings.dnsNanos(),
+                    timings.connectNanos(),
+                    timings.tlsNanos(),
+                    timings.timeToFirstByteNanos(),
+                    attempts,
+                    hedged,
+                    error
+            );
+            try {
+                listener.onComplete(metrics);
+            } catch (RuntimeException ignored) {
+                // a broken listener must not fail the request
+            }
+        }
+    }
+
+    private static boolean isIdempotent(Request request) {
+        String method = request.method();
+        return method.equals("GET") || method.equals("HEAD") || method.equals("PUT") || method.equals("DELETE");
     }
 }
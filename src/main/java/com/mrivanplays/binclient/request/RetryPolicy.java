@@ -0,0 +1,252 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+
+/**
+ * Represents a policy, deciding whenever and when a failed {@link RestRequest} is reissued. Requests are retried on
+ * I/O errors and on the configured status codes, waiting an exponentially growing, jittered backoff between attempts.
+ * If the server sends a <code>Retry-After</code> header, it is honored instead of the backoff.
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+    private static final RetryPolicy DEFAULTS = builder().build();
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final long maxRetryAfterMillis;
+    private final Set<Integer> retryableStatusCodes;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoff.toMillis();
+        this.maxBackoffMillis = builder.maxBackoff.toMillis();
+        this.multiplier = builder.multiplier;
+        this.maxRetryAfterMillis = builder.maxRetryAfter.toMillis();
+        this.retryableStatusCodes = Collections.unmodifiableSet(new HashSet<>(builder.retryableStatusCodes));
+    }
+
+    /**
+     * Returns a policy, which never retries.
+     *
+     * @return policy
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Returns the default policy: 3 attempts, backoff starting at 200 milliseconds up to 5 seconds, retrying on
+     * 429, 500, 502, 503 and 504.
+     *
+     * @return policy
+     */
+    public static RetryPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the maximum amount of attempts, including the first one.
+     *
+     * @return max attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns whenever a response with the specified status code should be retried.
+     *
+     * @param statusCode status code
+     * @return <code>true</code> if retryable, <code>false</code> otherwise
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryableStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Returns the delay before the next attempt, after the specified attempt failed.
+     *
+     * @param attempt  attempt which failed, starting at 1
+     * @param response response of the failed attempt, or <code>null</code> if it failed with an I/O error
+     * @return delay in milliseconds, or -1 if the request should not be retried
+     */
+    public long delayMillis(int attempt, Response response) {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        if (response != null) {
+            if (!isRetryable(response.code())) {
+                return -1;
+            }
+            long retryAfter = retryAfterMillis(response.header("Retry-After"));
+            if (retryAfter >= 0) {
+                return retryAfter <= maxRetryAfterMillis ? retryAfter : -1;
+            }
+        }
+        double backoff = Math.min(maxBackoffMillis, initialBackoffMillis * Math.pow(multiplier, attempt - 1));
+        // equal jitter: keeps at least half of the backoff, while spreading out clients which failed together
+        long half = (long) (backoff / 2);
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            // saturates instead of overflowing, so absurd values are refused as too long
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            OffsetDateTime at = OffsetDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * Represents a builder of {@link RetryPolicy}
+     */
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        private double multiplier = 2;
+        private Duration maxRetryAfter = Duration.ofSeconds(30);
+        private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 500, 502, 503, 504));
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum amount of attempts, including the first one.
+         *
+         * @param maxAttempts max attempts
+         * @return this instance for chaining
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff after the first failed attempt.
+         *
+         * @param initialBackoff initial backoff
+         * @return this instance for chaining
+         */
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = Objects.requireNonNull(initialBackoff, "initialBackoff");
+            return this;
+        }
+
+        /**
+         * Sets the maximum backoff between two attempts.
+         *
+         * @param maxBackoff max backoff
+         * @return this instance for chaining
+         */
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = Objects.requireNonNull(maxBackoff, "maxBackoff");
+            return this;
+        }
+
+        /**
+         * Sets the factor, the backoff grows by after each failed attempt.
+         *
+         * @param multiplier multiplier
+         * @return this instance for chaining
+         */
+        public Builder multiplier(double multiplier) {
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier < 1: " + multiplier);
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Sets the longest <code>Retry-After</code> the request waits for. If the server asks to wait longer, the
+         * request is not retried.
+         *
+         * @param maxRetryAfter max retry after
+         * @return this instance for chaining
+         */
+        public Builder maxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = Objects.requireNonNull(maxRetryAfter, "maxRetryAfter");
+            return this;
+        }
+
+        /**
+         * Sets the status codes, on which the request is retried.
+         *
+         * @param statusCodes status codes
+         * @return this instance for chaining
+         */
+        public Builder retryOn(Integer... statusCodes) {
+            this.retryableStatusCodes = new HashSet<>(Arrays.asList(statusCodes));
+            return this;
+        }
+
+        /**
+         * Builds the policy
+         *
+         * @return retry policy
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
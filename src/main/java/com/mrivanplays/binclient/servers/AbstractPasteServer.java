@@ -0,0 +1,200 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.servers;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.request.CircuitBreaker;
+import com.mrivanplays.binclient.request.Compression;
+import com.mrivanplays.binclient.request.CompressionInterceptor;
+import com.mrivanplays.binclient.request.HedgePolicy;
+import com.mrivanplays.binclient.request.RateLimiter;
+import com.mrivanplays.binclient.request.RequestListener;
+import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Holds the configuration every built-in server shares, and creates its requests with it.
+ *
+ * @param <P> type of paste, retrieved from this server
+ */
+abstract class AbstractPasteServer<P extends Paste> implements PasteService<P> {
+
+    final String baseUrl;
+    final String userAgent = "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:15.0) Gecko/20100101 Firefox/15.0.1";
+
+    private OkHttpClient client;
+    private RateLimiter rateLimiter;
+    private CircuitBreaker circuitBreaker;
+    private HedgePolicy hedgePolicy;
+    private RequestListener requestListener;
+    private JsonCodec jsonCodec = JsonCodec.defaultCodec();
+    private Compression compression;
+
+    AbstractPasteServer(OkHttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Sets the rate limiter, consulted before dispatching every request to this server. <code>null</code> disables
+     * rate limiting.
+     *
+     * @param rateLimiter rate limiter
+     */
+    @Override
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the rate limiter, consulted before dispatching every request to this server.
+     *
+     * @return rate limiter, or <code>null</code> if not rate limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the circuit breaker, guarding every request to this server. <code>null</code> disables the circuit
+     * breaker.
+     *
+     * @param circuitBreaker circuit breaker
+     */
+    @Override
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Returns the circuit breaker, guarding every request to this server.
+     *
+     * @return circuit breaker, or <code>null</code> if none
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the hedge policy, used when retrieving pastes from this server. <code>null</code> disables hedging.
+     *
+     * @param hedgePolicy hedge policy
+     */
+    @Override
+    public void setHedgePolicy(HedgePolicy hedgePolicy) {
+        this.hedgePolicy = hedgePolicy;
+    }
+
+    /**
+     * Returns the hedge policy, used when retrieving pastes from this server.
+     *
+     * @return hedge policy, or <code>null</code> if not hedging
+     */
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * Sets the listener, notified with the metrics of every request to this server. <code>null</code> disables
+     * reporting.
+     *
+     * @param requestListener request listener
+     */
+    @Override
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Returns the listener, notified with the metrics of every request to this server.
+     *
+     * @return request listener, or <code>null</code> if none
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Sets the codec, responses of this server are read with
+     *
+     * @param jsonCodec json codec
+     */
+    @Override
+    public void setJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = Objects.requireNonNull(jsonCodec, "jsonCodec");
+    }
+
+    /**
+     * Returns the codec, responses of this server are read with. Defaults to {@link JsonCodec#defaultCodec()}.
+     *
+     * @return json codec
+     */
+    public JsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
+
+    /**
+     * Sets the compression of requests to this server. <code>null</code> disables compression. If the http client
+     * doesn't have the {@link CompressionInterceptor} installed, this server switches to a copy of it which has.
+     *
+     * @param compression compression
+     */
+    @Override
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+        if (compression != null) {
+            this.client = CompressionInterceptor.install(client);
+        }
+    }
+
+    /**
+     * Returns the compression of requests to this server.
+     *
+     * @return compression, or <code>null</code> if not compressing
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Creates a request to this server, configured with its rate limiter, circuit breaker, hedge policy, listener
+     * and compression.
+     */
+    <T> RestRequest<T> newRequest(Request request, String operation, Function<Response, T> finisher) {
+        return new RestRequest<>(request, client, finisher)
+                .operation(getName(), operation)
+                .listener(requestListener)
+                .rateLimit(rateLimiter)
+                .circuitBreaker(circuitBreaker)
+                .hedge(hedgePolicy)
+                .compression(compression);
+    }
+}
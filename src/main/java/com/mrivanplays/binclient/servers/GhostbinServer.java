@@ -22,21 +22,28 @@
 */
 package com.mrivanplays.binclient.servers;
 
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.json.JsonObject;
 import com.mrivanplays.binclient.paste.GhostbinPaste;
 import com.mrivanplays.binclient.paste.impl.GhostbinPasteImpl;
+import com.mrivanplays.binclient.request.PasteBodies;
 import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
 
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import okhttp3.Dispatcher;
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -44,19 +51,19 @@ import okhttp3.RequestBody;
 /**
  * Represents a bin server, ran under the ghostbin package
  */
-public final class GhostbinServer {
+public final class GhostbinServer extends AbstractPasteServer<GhostbinPaste> {
+
+    private static final String DEFAULT_LANGUAGE = "text";
+    private static final List<String> PASTE_FIELDS = Arrays.asList("id", "body", "language", "expiration", "encrypted");
 
-    private OkHttpClient client;
     private String defaultExpiryTime;
-    private String baseUrl;
-    private final String userAgent;
 
     public GhostbinServer(String defaultExpiryTime) {
         this(defaultExpiryTime, "https://paste.menudocs.org/");
     }
 
     public GhostbinServer(String defaultExpiryTime, String baseUrl) {
-        this(new OkHttpClient(), defaultExpiryTime, baseUrl);
+        this(BinClient.sharedHttpClient(), defaultExpiryTime, baseUrl);
     }
 
     public GhostbinServer(ExecutorService executor, String defaultExpiryTime) {
@@ -64,14 +71,42 @@ public final class GhostbinServer {
     }
 
     public GhostbinServer(ExecutorService executor, String defaultExpiryTime, String baseUrl) {
-        this(new OkHttpClient.Builder().dispatcher(new Dispatcher(executor)).build(), defaultExpiryTime, baseUrl);
+        this(BinClient.sharedHttpClient().newBuilder().dispatcher(new Dispatcher(executor)).build(), defaultExpiryTime, baseUrl);
     }
 
     public GhostbinServer(OkHttpClient client, String defaultExpiryTime, String baseUrl) {
-        this.client = client;
-        this.userAgent = "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:15.0) Gecko/20100101 Firefox/15.0.1";
+        super(client, baseUrl);
         this.defaultExpiryTime = defaultExpiryTime;
-        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Returns the expiry time of pastes, created without specifying one, e.g. <code>1d</code>
+     *
+     * @return default expiry time
+     */
+    public String getDefaultExpiryTime() {
+        return defaultExpiryTime;
+    }
+
+    @Override
+    public String getName() {
+        return "ghostbin";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return EnumSet.of(Capability.EXPIRY, Capability.LANGUAGE, Capability.ENCRYPTION);
+    }
+
+    /**
+     * Creates a new paste, highlighted as plain text
+     *
+     * @param code code
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(String code) {
+        return createPaste(code, DEFAULT_LANGUAGE);
     }
 
     /**
@@ -94,18 +129,126 @@ public final class GhostbinServer {
      * @return rest request
      */
     public RestRequest<String> createPaste(String code, String language, String expiryTime) {
-        Map<String, String> postBody = new HashMap<>();
-        postBody.put("lang", language);
-        postBody.put("text", code);
-        postBody.put("expire", expiryTime);
+        return createPaste(RequestBody.create(null, code), language, expiryTime);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file. It is highlighted as plain text.
+     *
+     * @param file file
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(Path file) {
+        return createPaste(file, DEFAULT_LANGUAGE);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file     file
+     * @param language language id
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(Path file, String language) {
+        return createPaste(file, language, defaultExpiryTime);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file       file
+     * @param language   language id
+     * @param expiryTime time after this bin will expire
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(Path file, String language, String expiryTime) {
+        return createPaste(PasteBodies.create(null, file), language, expiryTime);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read. It is highlighted as plain text.
+     *
+     * @param in input stream
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(InputStream in) {
+        return createPaste(in, DEFAULT_LANGUAGE);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in       input stream
+     * @param language language id
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(InputStream in, String language) {
+        return createPaste(in, language, defaultExpiryTime);
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in         input stream
+     * @param language   language id
+     * @param expiryTime time after this bin will expire
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(InputStream in, String language, String expiryTime) {
+        return createPaste(PasteBodies.create(null, in), language, expiryTime);
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer. It is highlighted as plain text.
+     *
+     * @param buffer buffer
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(ByteBuffer buffer) {
+        return createPaste(buffer, DEFAULT_LANGUAGE);
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer   buffer
+     * @param language language id
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(ByteBuffer buffer, String language) {
+        return createPaste(buffer, language, defaultExpiryTime);
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer     buffer
+     * @param language   language id
+     * @param expiryTime time after this bin will expire
+     * @return rest request
+     */
+    public RestRequest<String> createPaste(ByteBuffer buffer, String language, String expiryTime) {
+        return createPaste(PasteBodies.create(null, buffer), language, expiryTime);
+    }
+
+    private RestRequest<String> createPaste(RequestBody text, String language, String expiryTime) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("lang", language);
+        fields.put("expire", expiryTime);
 
         Request request = new Request.Builder()
                 .url(baseUrl + "paste/new")
                 .addHeader("User-Agent", userAgent)
                 .addHeader("Content-Type", "application/x-www-form-urlencoded")
-                .post(RequestBody.create(MediaType.get("application/x-www-form-urlencoded"), createFormBody(postBody).getBytes()))
+                .post(PasteBodies.formEncoded(fields, "text", text))
                 .build();
-        return new RestRequest<>(request, client, (response) -> response.request().url().url()
+        return newRequest(request, "create", (response) -> response.request().url().url()
                 .toString().replace(baseUrl + "paste/", "").replace("/", ""));
     }
 
@@ -115,6 +258,7 @@ public final class GhostbinServer {
      * @param id paste id
      * @return rest request
      */
+    @Override
     public RestRequest<GhostbinPaste> retrievePaste(String id) {
         Request request = new Request.Builder()
                 .url(baseUrl + "paste/" + id + ".json")
@@ -122,40 +266,70 @@ public final class GhostbinServer {
                 .get()
                 .build();
 
-        return new RestRequest<>(request, client, (response) -> {
+        return newRequest(request, "retrieve", (response) -> {
             if (response.code() == 404) {
                 throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
             }
             if (response.code() != 200) {
                 throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            String binId = object.getString("id");
-            JSONObject languageObject = object.getJSONObject("language");
+            JsonObject object = PasteJson.read(getJsonCodec(), response, PASTE_FIELDS, getName());
+            String binId = PasteJson.required(object.getString("id"), "id", getName());
+            JsonObject language = PasteJson.required(object.getObject("language"), "language", getName());
 
             return new GhostbinPasteImpl(
                     binId,
-                    object.getString("body"),
+                    PasteJson.required(object.getString("body"), "body", getName()),
                     baseUrl + "paste/" + binId,
-                    new GhostbinPaste.Language(languageObject.getString("name"), languageObject.getString("id")),
-                    object.getString("expiration"),
-                    object.getBoolean("encrypted")
+                    new GhostbinPaste.Language(
+                            PasteJson.required(language.getString("name"), "language.name", getName()),
+                            PasteJson.required(language.getString("id"), "language.id", getName())
+                    ),
+                    PasteJson.required(object.getString("expiration"), "expiration", getName()),
+                    object.getBoolean("encrypted", false)
             );
         });
     }
 
-    private String createFormBody(Map<String, String> fields) {
-        StringBuilder builder = new StringBuilder();
-
-        try {
-            for (Map.Entry<String, String> entry : fields.entrySet()) {
-                builder.append('&').append(URLEncoder.encode(entry.getKey(), "UTF-8")).append('=')
-                        .append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+    /**
+     * Retrieves the body of the paste with the specified id, writing it to the specified output stream as it is
+     * being received, without holding the whole body in memory. The stream is not closed.
+     *
+     * @param id  paste id
+     * @param out output stream to write the body to
+     * @return rest request, returning the amount of bytes written
+     */
+    @Override
+    public RestRequest<Long> retrievePasteStream(String id, OutputStream out) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "paste/" + id + ".json")
+                .addHeader("User-Agent", userAgent)
+                .get()
+                .build();
+        return newRequest(request, "retrieveStream", (response) -> {
+            if (response.code() == 404) {
+                throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
+            }
+            if (response.code() != 200) {
+                throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-        } catch (UnsupportedEncodingException ignored) {
-            return "";
+            return PasteStreams.copyJsonField(response.body().charStream(), "body", out);
+        });
+    }
+
+    /**
+     * Provides ghostbin servers to {@link com.mrivanplays.binclient.service.PasteServices}, expiring after a day.
+     */
+    public static final class Provider implements PasteServiceProvider {
+
+        @Override
+        public String getName() {
+            return "ghostbin";
         }
 
-        return builder.toString().substring(1);
+        @Override
+        public PasteService<?> create(OkHttpClient client) {
+            return new GhostbinServer(client, "1d", "https://paste.menudocs.org/");
+        }
     }
 }
@@ -22,17 +22,25 @@
 */
 package com.mrivanplays.binclient.servers;
 
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.json.JsonObject;
 import com.mrivanplays.binclient.paste.Paste;
 import com.mrivanplays.binclient.paste.impl.PasteImpl;
+import com.mrivanplays.binclient.request.PasteBodies;
 import com.mrivanplays.binclient.request.RequestException;
 import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
 
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import okhttp3.Dispatcher;
@@ -44,17 +52,17 @@ import okhttp3.RequestBody;
 /**
  * Represents a bin server, ran under the hastebin package
  */
-public final class HasteServer {
-    private OkHttpClient client;
-    private String baseUrl;
-    private final String userAgent;
+public final class HasteServer extends AbstractPasteServer<Paste> {
+
+    private static final List<String> CREATE_FIELDS = Collections.singletonList("key");
+
 
     public HasteServer() {
         this("https://hasteb.in/");
     }
 
     public HasteServer(String baseUrl) {
-        this(new OkHttpClient(), baseUrl);
+        this(BinClient.sharedHttpClient(), baseUrl);
     }
 
     public HasteServer(ExecutorService executor) {
@@ -62,13 +70,21 @@ public final class HasteServer {
     }
 
     public HasteServer(ExecutorService executor, String baseUrl) {
-        this(new OkHttpClient.Builder().dispatcher(new Dispatcher(executor)).build(), baseUrl);
+        this(BinClient.sharedHttpClient().newBuilder().dispatcher(new Dispatcher(executor)).build(), baseUrl);
     }
 
     public HasteServer(OkHttpClient client, String baseUrl) {
-        this.client = client;
-        this.userAgent = "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:15.0) Gecko/20100101 Firefox/15.0.1";
-        this.baseUrl = baseUrl;
+        super(client, baseUrl);
+    }
+
+    @Override
+    public String getName() {
+        return "hastebin";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return EnumSet.noneOf(Capability.class);
     }
 
     /**
@@ -77,16 +93,55 @@ public final class HasteServer {
      * @param code code
      * @return rest request
      */
+    @Override
     public RestRequest<String> createPaste(String code) {
+        return createPaste(RequestBody.create(MediaType.parse("text/plain"), code));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file file
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(Path file) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), file));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in input stream
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(InputStream in) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), in));
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer buffer
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(ByteBuffer buffer) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), buffer));
+    }
+
+    private RestRequest<String> createPaste(RequestBody body) {
         Request request = new Request.Builder()
                 .url(baseUrl + "documents")
                 .addHeader("User-Agent", userAgent)
                 .addHeader("Content-Type", "text")
-                .post(RequestBody.create(MediaType.parse("text/plain"), code))
+                .post(body)
                 .build();
-        return new RestRequest<>(request, client, (response) -> {
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            return object.getString("key");
+        return newRequest(request, "create", (response) -> {
+            JsonObject object = PasteJson.read(getJsonCodec(), response, CREATE_FIELDS, getName());
+            return PasteJson.required(object.getString("key"), "key", getName());
         });
     }
 
@@ -96,26 +151,68 @@ public final class HasteServer {
      * @param id id
      * @return rest request
      */
+    @Override
     public RestRequest<Paste> retrievePaste(String id) {
         Request request = new Request.Builder()
                 .url(baseUrl + "raw/" + id)
                 .addHeader("User-Agent", userAgent)
                 .get()
                 .build();
-        return new RestRequest<>(request, client, (response) -> {
+        return newRequest(request, "retrieve", (response) -> {
             if (response.code() == 404) {
                 throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
             }
             if (response.code() != 200) {
                 throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body().byteStream()))) {
-                StringBuilder codeBuilder = new StringBuilder();
-                reader.lines().forEach(line -> codeBuilder.append(line).append("\n"));
-                return new PasteImpl(id, codeBuilder.toString(), baseUrl + id);
+            try {
+                // kept as sent, decoded only once the body is requested as string
+                return new PasteImpl(id, response.body().bytes(), baseUrl + id);
             } catch (IOException e) {
                 throw new RequestException("Error occurred while trying to retrieve a haste server paste", e);
             }
         });
     }
+
+    /**
+     * Retrieves the body of the paste with the specified id, writing it to the specified output stream as it is
+     * being received, without holding the whole body in memory. The stream is not closed.
+     *
+     * @param id  id
+     * @param out output stream to write the body to
+     * @return rest request, returning the amount of bytes written
+     */
+    @Override
+    public RestRequest<Long> retrievePasteStream(String id, OutputStream out) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "raw/" + id)
+                .addHeader("User-Agent", userAgent)
+                .get()
+                .build();
+        return newRequest(request, "retrieveStream", (response) -> {
+            if (response.code() == 404) {
+                throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
+            }
+            if (response.code() != 200) {
+                throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
+            }
+            return PasteStreams.copy(response.body().byteStream(), out);
+        });
+    }
+
+    /**
+     * Provides hastebin servers to {@link com.mrivanplays.binclient.service.PasteServices}.
+     */
+    public static final class Provider implements PasteServiceProvider {
+
+        @Override
+        public String getName() {
+            return "hastebin";
+        }
+
+        @Override
+        public PasteService<?> create(OkHttpClient client) {
+            return new HasteServer(client, "https://hasteb.in/");
+        }
+    }
 }
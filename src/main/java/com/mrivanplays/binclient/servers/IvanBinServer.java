@@ -22,15 +22,26 @@
 */
 package com.mrivanplays.binclient.servers;
 
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.json.JsonObject;
 import com.mrivanplays.binclient.paste.IvanBinPaste;
 import com.mrivanplays.binclient.paste.impl.IvanBinPasteImpl;
+import com.mrivanplays.binclient.paste.impl.LazyDateTime;
+import com.mrivanplays.binclient.request.PasteBodies;
 import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
 
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
-import java.time.OffsetDateTime;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import okhttp3.Dispatcher;
@@ -43,22 +54,44 @@ import okhttp3.RequestBody;
  * Represents a bin server, ran under the <a href="https://github.com/MrIvanPlays/bin.mrivanplays.com/">ivanbin</a>
  * package
  */
-public final class IvanBinServer {
+public final class IvanBinServer extends AbstractPasteServer<IvanBinPaste> {
+
+    private static final List<String> CREATE_FIELDS = Collections.singletonList("binId");
+    private static final List<String> PASTE_FIELDS = Arrays.asList("binId", "body", "createdAt", "expiresAt");
 
-    private OkHttpClient client;
-    private final String userAgent;
 
     public IvanBinServer() {
-        this(new OkHttpClient());
+        this("https://bin.mrivanplays.com/");
+    }
+
+    public IvanBinServer(String baseUrl) {
+        this(BinClient.sharedHttpClient(), baseUrl);
     }
 
     public IvanBinServer(ExecutorService executor) {
-        this(new OkHttpClient.Builder().dispatcher(new Dispatcher(executor)).build());
+        this(executor, "https://bin.mrivanplays.com/");
+    }
+
+    public IvanBinServer(ExecutorService executor, String baseUrl) {
+        this(BinClient.sharedHttpClient().newBuilder().dispatcher(new Dispatcher(executor)).build(), baseUrl);
     }
 
     public IvanBinServer(OkHttpClient client) {
-        this.client = client;
-        this.userAgent = "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:15.0) Gecko/20100101 Firefox/15.0.1";
+        this(client, "https://bin.mrivanplays.com/");
+    }
+
+    public IvanBinServer(OkHttpClient client, String baseUrl) {
+        super(client, baseUrl);
+    }
+
+    @Override
+    public String getName() {
+        return "ivanbin";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return EnumSet.of(Capability.EXPIRY, Capability.CREATION_TIME);
     }
 
     /**
@@ -67,15 +100,54 @@ public final class IvanBinServer {
      * @param code code
      * @return rest request
      */
+    @Override
     public RestRequest<String> createPaste(String code) {
+        return createPaste(RequestBody.create(MediaType.parse("text/plain"), code));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file file
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(Path file) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), file));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in input stream
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(InputStream in) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), in));
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer buffer
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(ByteBuffer buffer) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), buffer));
+    }
+
+    private RestRequest<String> createPaste(RequestBody body) {
         Request request = new Request.Builder()
-                .url("https://bin.mrivanplays.com/api/create")
+                .url(baseUrl + "api/create")
                 .header("User-Agent", userAgent)
                 .header("Content-Type", "text")
-                .post(RequestBody.create(MediaType.parse("text/plain"), code)).build();
-        return new RestRequest<>(request, client, (response) -> {
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            return object.getString("binId");
+                .post(body).build();
+        return newRequest(request, "create", (response) -> {
+            JsonObject object = PasteJson.read(getJsonCodec(), response, CREATE_FIELDS, getName());
+            return PasteJson.required(object.getString("binId"), "binId", getName());
         });
     }
 
@@ -85,23 +157,70 @@ public final class IvanBinServer {
      * @param id id
      * @return rest request
      */
+    @Override
     public RestRequest<IvanBinPaste> retrievePaste(String id) {
         Request request = new Request.Builder()
-                .url("https://bin.mrivanplays.com/api/info/" + id)
+                .url(baseUrl + "api/info/" + id)
+                .header("User-Agent", userAgent)
+                .get().build();
+        return newRequest(request, "retrieve", (response) -> {
+            if (response.code() == 404) {
+                throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
+            }
+            if (response.code() != 200) {
+                throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
+            }
+            JsonObject object = PasteJson.read(getJsonCodec(), response, PASTE_FIELDS, getName());
+            String binId = PasteJson.required(object.getString("binId"), "binId", getName());
+            // dates are only parsed once requested
+            return new IvanBinPasteImpl(
+                    binId,
+                    PasteJson.required(object.getString("body"), "body", getName()),
+                    baseUrl + binId,
+                    LazyDateTime.parse(PasteJson.required(object.getString("createdAt"), "createdAt", getName()), DateTimeFormatter.RFC_1123_DATE_TIME),
+                    LazyDateTime.parse(PasteJson.required(object.getString("expiresAt"), "expiresAt", getName()), DateTimeFormatter.RFC_1123_DATE_TIME)
+            );
+        });
+    }
+
+    /**
+     * Retrieves the body of the paste with the specified id, writing it to the specified output stream as it is
+     * being received, without holding the whole body in memory. The stream is not closed.
+     *
+     * @param id  id
+     * @param out output stream to write the body to
+     * @return rest request, returning the amount of bytes written
+     */
+    @Override
+    public RestRequest<Long> retrievePasteStream(String id, OutputStream out) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "api/info/" + id)
                 .header("User-Agent", userAgent)
                 .get().build();
-        return new RestRequest<>(request, client, (response) -> {
+        return newRequest(request, "retrieveStream", (response) -> {
             if (response.code() == 404) {
                 throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
             }
             if (response.code() != 200) {
                 throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            String binId = object.getString("binId");
-            OffsetDateTime createdAt = OffsetDateTime.parse(object.getString("createdAt"), DateTimeFormatter.RFC_1123_DATE_TIME);
-            OffsetDateTime expiresAt = OffsetDateTime.parse(object.getString("expiresAt"), DateTimeFormatter.RFC_1123_DATE_TIME);
-            return new IvanBinPasteImpl(binId, object.getString("body"), "https://bin.mrivanplays.com/" + binId, createdAt, expiresAt);
+            return PasteStreams.copyJsonField(response.body().charStream(), "body", out);
         });
     }
+
+    /**
+     * Provides ivanbin servers to {@link com.mrivanplays.binclient.service.PasteServices}.
+     */
+    public static final class Provider implements PasteServiceProvider {
+
+        @Override
+        public String getName() {
+            return "ivanbin";
+        }
+
+        @Override
+        public PasteService<?> create(OkHttpClient client) {
+            return new IvanBinServer(client);
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.servers;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.json.JsonObject;
+import com.mrivanplays.binclient.request.RequestException;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import okhttp3.Response;
+
+/**
+ * Utilities for reading paste responses with a {@link JsonCodec}.
+ */
+final class PasteJson {
+
+    private PasteJson() {
+    }
+
+    /**
+     * Reads the json object of the specified response, in the charset of the response (utf-8 unless specified).
+     *
+     * @param codec    codec
+     * @param response response
+     * @param fields   names of the members to retain
+     * @param server   server name
+     * @return json object
+     * @throws RequestException if the response could not be read
+     */
+    static JsonObject read(JsonCodec codec, Response response, Collection<String> fields, String server) {
+        try {
+            return codec.read(response.body().charStream(), fields);
+        } catch (IOException e) {
+            throw new RequestException("Error occurred while trying to read a " + server + " response", e);
+        }
+    }
+
+    /**
+     * Returns the specified value, read from the specified field.
+     *
+     * @param value  value
+     * @param field  field name
+     * @param server server name
+     * @return value
+     * @throws RequestException if the value is null, e.g. because the field was missing
+     */
+    static <T> T required(T value, String field, String server) {
+        if (value == null) {
+            throw new RequestException("Missing field '" + field + "' in " + server + " response", null);
+        }
+        return value;
+    }
+}
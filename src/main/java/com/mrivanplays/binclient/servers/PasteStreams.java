@@ -0,0 +1,113 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.servers;
+
+import com.mrivanplays.binclient.json.JsonReader;
+import com.mrivanplays.binclient.request.RequestException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utilities for piping paste bodies from a response to an {@link OutputStream} without holding them in memory.
+ */
+final class PasteStreams {
+
+    private PasteStreams() {
+    }
+
+    /**
+     * Copies the raw stream to the output.
+     *
+     * @param in  input
+     * @param out output
+     * @return bytes written
+     */
+    static long copy(InputStream in, OutputStream out) {
+        try {
+            byte[] buffer = new byte[8192];
+            long written = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                written += read;
+            }
+            out.flush();
+            return written;
+        } catch (IOException e) {
+            throw new RequestException("Error occurred while trying to stream a paste", e);
+        }
+    }
+
+    /**
+     * Streams the string value of the specified top level field of a json object to the output, encoded as UTF-8.
+     *
+     * @param in    json input, decoded with the response's charset (see {@link okhttp3.ResponseBody#charStream()})
+     * @param field field name
+     * @param out   output
+     * @return bytes written
+     */
+    static long copyJsonField(Reader in, String field, OutputStream out) {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        try {
+            JsonReader reader = new JsonReader(in);
+            reader.beginObject();
+            if (!reader.seekName(field)) {
+                throw new RequestException("Response does not contain a '" + field + "' field", null);
+            }
+            Writer writer = new OutputStreamWriter(counting, StandardCharsets.UTF_8);
+            reader.nextString(writer);
+            writer.flush();
+            return counting.count;
+        } catch (IOException e) {
+            throw new RequestException("Error occurred while trying to stream a paste", e);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
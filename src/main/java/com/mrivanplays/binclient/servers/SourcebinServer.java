@@ -22,15 +22,26 @@
 */
 package com.mrivanplays.binclient.servers;
 
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.json.JsonObject;
 import com.mrivanplays.binclient.paste.SourcebinPaste;
+import com.mrivanplays.binclient.paste.impl.LazyDateTime;
 import com.mrivanplays.binclient.paste.impl.SourcebinPasteImpl;
+import com.mrivanplays.binclient.request.PasteBodies;
 import com.mrivanplays.binclient.request.RestRequest;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
 
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
-import java.time.OffsetDateTime;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import okhttp3.Dispatcher;
@@ -42,21 +53,44 @@ import okhttp3.RequestBody;
 /**
  * Represents a bin server, ran under the <a href="https://sourceb.in">sourcebin</a> package
  */
-public final class SourcebinServer {
-    private OkHttpClient client;
-    private final String userAgent;
+public final class SourcebinServer extends AbstractPasteServer<SourcebinPaste> {
+
+    private static final List<String> CREATE_FIELDS = Collections.singletonList("key");
+    private static final List<String> PASTE_FIELDS = Arrays.asList("key", "code", "created", "id");
+
 
     public SourcebinServer() {
-        this(new OkHttpClient());
+        this("https://sourceb.in/");
+    }
+
+    public SourcebinServer(String baseUrl) {
+        this(BinClient.sharedHttpClient(), baseUrl);
     }
 
     public SourcebinServer(ExecutorService executor) {
-        this(new OkHttpClient.Builder().dispatcher(new Dispatcher(executor)).build());
+        this(executor, "https://sourceb.in/");
+    }
+
+    public SourcebinServer(ExecutorService executor, String baseUrl) {
+        this(BinClient.sharedHttpClient().newBuilder().dispatcher(new Dispatcher(executor)).build(), baseUrl);
     }
 
     public SourcebinServer(OkHttpClient client) {
-        this.client = client;
-        this.userAgent = "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:15.0) Gecko/20100101 Firefox/15.0.1";
+        this(client, "https://sourceb.in/");
+    }
+
+    public SourcebinServer(OkHttpClient client, String baseUrl) {
+        super(client, baseUrl);
+    }
+
+    @Override
+    public String getName() {
+        return "sourcebin";
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return EnumSet.of(Capability.CREATION_TIME, Capability.OWNER);
     }
 
     /**
@@ -65,15 +99,54 @@ public final class SourcebinServer {
      * @param code code
      * @return rest request
      */
+    @Override
     public RestRequest<String> createPaste(String code) {
+        return createPaste(RequestBody.create(MediaType.parse("text/plain"), code));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file file
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(Path file) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), file));
+    }
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in input stream
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(InputStream in) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), in));
+    }
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer buffer
+     * @return rest request
+     */
+    @Override
+    public RestRequest<String> createPaste(ByteBuffer buffer) {
+        return createPaste(PasteBodies.create(MediaType.parse("text/plain"), buffer));
+    }
+
+    private RestRequest<String> createPaste(RequestBody body) {
         Request request = new Request.Builder()
-                .url("https://sourceb.in/api/bin")
+                .url(baseUrl + "api/bin")
                 .header("User-Agent", userAgent)
                 .header("Content-Type", "text")
-                .post(RequestBody.create(MediaType.parse("text/plain"), code)).build();
-        return new RestRequest<>(request, client, (response) -> {
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            return object.getString("key");
+                .post(body).build();
+        return newRequest(request, "create", (response) -> {
+            JsonObject object = PasteJson.read(getJsonCodec(), response, CREATE_FIELDS, getName());
+            return PasteJson.required(object.getString("key"), "key", getName());
         });
     }
 
@@ -83,26 +156,71 @@ public final class SourcebinServer {
      * @param id id
      * @return rest request
      */
+    @Override
     public RestRequest<SourcebinPaste> retrievePaste(String id) {
         Request request = new Request.Builder()
-                .url("https://sourceb.in/api/bin/" + id)
+                .url(baseUrl + "api/bin/" + id)
                 .header("User-Agent", userAgent)
                 .get().build();
-        return new RestRequest<>(request, client, (response) -> {
+        return newRequest(request, "retrieve", (response) -> {
             if (response.code() == 404) {
                 throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
             }
             if (response.code() != 200) {
                 throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-            JSONObject object = new JSONObject(new JSONTokener(response.body().byteStream()));
-            String binId = object.getString("key");
-            OffsetDateTime createdAt = OffsetDateTime.parse(object.getString("created"), DateTimeFormatter.ISO_DATE_TIME);
-            String ownerId = "";
-            if (object.has("id")) {
-                ownerId = object.getString("id");
+            JsonObject object = PasteJson.read(getJsonCodec(), response, PASTE_FIELDS, getName());
+            String binId = PasteJson.required(object.getString("key"), "key", getName());
+            String ownerId = object.getString("id");
+            // the creation date is only parsed once requested
+            return new SourcebinPasteImpl(
+                    binId,
+                    PasteJson.required(object.getString("code"), "code", getName()),
+                    baseUrl + binId,
+                    LazyDateTime.parse(PasteJson.required(object.getString("created"), "created", getName()), DateTimeFormatter.ISO_DATE_TIME),
+                    ownerId == null ? "" : ownerId
+            );
+        });
+    }
+
+    /**
+     * Retrieves the body of the paste with the specified id, writing it to the specified output stream as it is
+     * being received, without holding the whole body in memory. The stream is not closed.
+     *
+     * @param id  id
+     * @param out output stream to write the body to
+     * @return rest request, returning the amount of bytes written
+     */
+    @Override
+    public RestRequest<Long> retrievePasteStream(String id, OutputStream out) {
+        Request request = new Request.Builder()
+                .url(baseUrl + "api/bin/" + id)
+                .header("User-Agent", userAgent)
+                .get().build();
+        return newRequest(request, "retrieveStream", (response) -> {
+            if (response.code() == 404) {
+                throw new IllegalArgumentException("Bin with id '" + id + "' does not exist.");
+            }
+            if (response.code() != 200) {
+                throw new RuntimeException("(THIS IS NOT A BUG) Status code not 200 ; server not responding? (THIS IS NOT A BUG)");
             }
-            return new SourcebinPasteImpl(binId, object.getString("code"), "https://sourceb.in/" + binId, createdAt, ownerId);
+            return PasteStreams.copyJsonField(response.body().charStream(), "code", out);
         });
     }
+
+    /**
+     * Provides sourcebin servers to {@link com.mrivanplays.binclient.service.PasteServices}.
+     */
+    public static final class Provider implements PasteServiceProvider {
+
+        @Override
+        public String getName() {
+            return "sourcebin";
+        }
+
+        @Override
+        public PasteService<?> create(OkHttpClient client) {
+            return new SourcebinServer(client);
+        }
+    }
 }
@@ -0,0 +1,191 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.service;
+
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.request.CircuitBreaker;
+import com.mrivanplays.binclient.request.Compression;
+import com.mrivanplays.binclient.request.HedgePolicy;
+import com.mrivanplays.binclient.request.RateLimiter;
+import com.mrivanplays.binclient.request.RequestListener;
+import com.mrivanplays.binclient.request.RestRequest;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Represents a bin server, independent of the backend it runs. Every built-in server implements it, and third party
+ * backends can be plugged in through a {@link PasteServiceProvider}. Cross-cutting layers (caching, batching,
+ * failover) work with any paste service.
+ *
+ * @param <P> type of paste, retrieved from this service
+ */
+public interface PasteService<P extends Paste> {
+
+    /**
+     * Returns the name of this service, e.g. <code>hastebin</code>. It is used as key by caches and as backend name
+     * by failover.
+     *
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Returns the features this service supports, beyond creating and retrieving plain pastes.
+     *
+     * @return capabilities
+     */
+    Set<Capability> getCapabilities();
+
+    /**
+     * Creates a new paste
+     *
+     * @param code code
+     * @return rest request
+     */
+    RestRequest<String> createPaste(String code);
+
+    /**
+     * Creates a new paste, streaming the contents of the specified file.
+     *
+     * @param file file
+     * @return rest request
+     */
+    RestRequest<String> createPaste(Path file);
+
+    /**
+     * Creates a new paste, streaming the contents of the specified input stream. The stream is closed once it was
+     * fully read.
+     *
+     * @param in input stream
+     * @return rest request
+     */
+    RestRequest<String> createPaste(InputStream in);
+
+    /**
+     * Creates a new paste, containing the remaining bytes of the specified buffer.
+     *
+     * @param buffer buffer
+     * @return rest request
+     */
+    RestRequest<String> createPaste(ByteBuffer buffer);
+
+    /**
+     * Retrieves the paste with the specified id
+     *
+     * @param id id
+     * @return rest request
+     */
+    RestRequest<P> retrievePaste(String id);
+
+    /**
+     * Retrieves the body of the paste with the specified id, writing it to the specified output stream as it is
+     * being received. The stream is not closed.
+     *
+     * @param id  id
+     * @param out output stream to write the body to
+     * @return rest request, returning the amount of bytes written
+     */
+    RestRequest<Long> retrievePasteStream(String id, OutputStream out);
+
+    /**
+     * Sets the rate limiter, consulted before dispatching every request to this service. Services, which aren't rate
+     * limited, ignore it.
+     *
+     * @param rateLimiter rate limiter, or <code>null</code> to disable rate limiting
+     */
+    default void setRateLimiter(RateLimiter rateLimiter) {
+    }
+
+    /**
+     * Sets the circuit breaker, guarding every request to this service. Services, which don't support circuit
+     * breaking, ignore it.
+     *
+     * @param circuitBreaker circuit breaker, or <code>null</code> to disable the circuit breaker
+     */
+    default void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    }
+
+    /**
+     * Sets the hedge policy, used when retrieving pastes from this service. Services, which don't hedge, ignore it.
+     *
+     * @param hedgePolicy hedge policy, or <code>null</code> to disable hedging
+     */
+    default void setHedgePolicy(HedgePolicy hedgePolicy) {
+    }
+
+    /**
+     * Sets the listener, notified with the metrics of every request to this service. Services, which don't report
+     * metrics, ignore it.
+     *
+     * @param requestListener request listener, or <code>null</code> to disable reporting
+     */
+    default void setRequestListener(RequestListener requestListener) {
+    }
+
+    /**
+     * Sets the codec, responses of this service are read with. Services, which don't read json, ignore it.
+     *
+     * @param jsonCodec json codec
+     */
+    default void setJsonCodec(JsonCodec jsonCodec) {
+    }
+
+    /**
+     * Sets the compression of requests to this service. Services, which don't support compression, ignore it.
+     *
+     * @param compression compression, or <code>null</code> to disable compression
+     */
+    default void setCompression(Compression compression) {
+    }
+
+    /**
+     * Represents a feature of a paste service
+     */
+    enum Capability {
+        /**
+         * Pastes expire, and their expiration is exposed.
+         */
+        EXPIRY,
+        /**
+         * The language of a paste can be chosen and is exposed.
+         */
+        LANGUAGE,
+        /**
+         * The creation time of a paste is exposed.
+         */
+        CREATION_TIME,
+        /**
+         * The owner of a paste is exposed.
+         */
+        OWNER,
+        /**
+         * Pastes may be encrypted.
+         */
+        ENCRYPTION
+    }
+}
@@ -0,0 +1,86 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Looks up {@link PasteServiceProvider paste service providers}, registered through {@link ServiceLoader}. Providers
+ * are looked up in BinClient's class loader first, then in the thread context class loader, so providers packaged
+ * with a plugin or web application loading BinClient from a parent class loader are found too.
+ */
+public final class PasteServices {
+
+    private PasteServices() {
+    }
+
+    /**
+     * Returns every registered provider, including the built-in ones.
+     *
+     * @return providers
+     */
+    public static List<PasteServiceProvider> providers() {
+        List<PasteServiceProvider> providers = new ArrayList<>();
+        Set<Class<?>> found = new HashSet<>();
+        ClassLoader classLoader = PasteServices.class.getClassLoader();
+        load(classLoader, providers, found);
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        if (contextClassLoader != null && contextClassLoader != classLoader) {
+            load(contextClassLoader, providers, found);
+        }
+        return Collections.unmodifiableList(providers);
+    }
+
+    private static void load(ClassLoader classLoader, List<PasteServiceProvider> providers, Set<Class<?>> found) {
+        for (PasteServiceProvider provider : ServiceLoader.load(PasteServiceProvider.class, classLoader)) {
+            // a child class loader also sees the providers of its parents
+            if (found.add(provider.getClass())) {
+                providers.add(provider);
+            }
+        }
+    }
+
+    /**
+     * Creates the paste service with the specified name.
+     *
+     * @param name   name, e.g. <code>hastebin</code>
+     * @param client http client
+     * @return paste service
+     * @throws IllegalArgumentException if no provider with that name is registered
+     */
+    public static PasteService<?> create(String name, OkHttpClient client) {
+        for (PasteServiceProvider provider : providers()) {
+            if (provider.getName().equalsIgnoreCase(name)) {
+                return provider.create(client);
+            }
+        }
+        throw new IllegalArgumentException("No paste service named '" + name + "' is registered");
+    }
+}
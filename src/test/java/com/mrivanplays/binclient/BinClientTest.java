@@ -0,0 +1,86 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+public class BinClientTest {
+
+    @Test
+    public void testBuilderConfiguresHttpClient() {
+        OkHttpClient client = BinClient.builder()
+                .maxRequests(10)
+                .maxRequestsPerHost(2)
+                .preferHttp2(false)
+                .connectTimeout(Duration.ofSeconds(1))
+                .readTimeout(Duration.ofSeconds(2))
+                .writeTimeout(Duration.ofSeconds(3))
+                .buildHttpClient();
+        try {
+            Assert.assertEquals(10, client.dispatcher().getMaxRequests());
+            Assert.assertEquals(2, client.dispatcher().getMaxRequestsPerHost());
+            Assert.assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+            Assert.assertEquals(1000, client.connectTimeoutMillis());
+            Assert.assertEquals(2000, client.readTimeoutMillis());
+            Assert.assertEquals(3000, client.writeTimeoutMillis());
+        } finally {
+            client.dispatcher().executorService().shutdown();
+        }
+    }
+
+    @Test
+    public void testExecutor() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            BinClient binClient = BinClient.builder().executor(executor).build();
+            Assert.assertSame(executor, binClient.getHttpClient().dispatcher().executorService());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedHttpClient() {
+        Assert.assertSame(BinClient.sharedHttpClient(), BinClient.sharedHttpClient());
+        Assert.assertSame(BinClient.sharedHttpClient(), new BinClient().getHttpClient());
+
+        OkHttpClient client = new OkHttpClient();
+        Assert.assertSame(client, new BinClient(client).getHttpClient());
+    }
+
+    @Test
+    public void testShutdown() {
+        BinClient binClient = BinClient.builder().build();
+        binClient.shutdown();
+        Assert.assertTrue(binClient.getHttpClient().dispatcher().executorService().isShutdown());
+    }
+}
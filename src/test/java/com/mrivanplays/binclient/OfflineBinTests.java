@@ -0,0 +1,640 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient;
+
+import com.mrivanplays.binclient.batch.ChunkedPastes;
+import com.mrivanplays.binclient.cache.UploadDeduplicator;
+import com.mrivanplays.binclient.failover.FailoverResult;
+import com.mrivanplays.binclient.failover.FailoverUploader;
+import com.mrivanplays.binclient.json.JsonCodec;
+import com.mrivanplays.binclient.mock.LoadGenerator;
+import com.mrivanplays.binclient.mock.MockBinServer;
+import com.mrivanplays.binclient.mock.MockServiceProvider;
+import com.mrivanplays.binclient.paste.GhostbinPaste;
+import com.mrivanplays.binclient.paste.IvanBinPaste;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.paste.SourcebinPaste;
+import com.mrivanplays.binclient.reactive.PasteProcessor;
+import com.mrivanplays.binclient.request.CircuitBreaker;
+import com.mrivanplays.binclient.request.CircuitBreakerOpenException;
+import com.mrivanplays.binclient.request.Compression;
+import com.mrivanplays.binclient.request.Deadline;
+import com.mrivanplays.binclient.request.DeadlineExceededException;
+import com.mrivanplays.binclient.request.HedgePolicy;
+import com.mrivanplays.binclient.request.RateLimiter;
+import com.mrivanplays.binclient.request.RequestException;
+import com.mrivanplays.binclient.request.RequestListener;
+import com.mrivanplays.binclient.request.RequestMetrics;
+import com.mrivanplays.binclient.request.VirtualThreads;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.servers.IvanBinServer;
+import com.mrivanplays.binclient.servers.SourcebinServer;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
+import com.mrivanplays.binclient.service.PasteServices;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Same as {@link BinTests}, but against a {@link MockBinServer} instead of the live servers.
+ */
+public class OfflineBinTests {
+
+    private static final String CODE = "<h1>Hello, world!</h1>\r\n\"quoted\" & 100% café";
+
+    private static MockBinServer mock;
+    private static OkHttpClient client;
+
+    @BeforeClass
+    public static void start() throws IOException {
+        mock = MockBinServer.builder().start();
+        client = BinClient.builder().maxRequestsPerHost(16).buildHttpClient();
+    }
+
+    @AfterClass
+    public static void stop() {
+        mock.close();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void testHastebin() {
+        HasteServer hasteServer = new HasteServer(client, mock.getBaseUrl());
+        String id = hasteServer.createPaste(CODE).sync();
+        Paste paste = hasteServer.retrievePaste(id).sync();
+        Assert.assertEquals(id, paste.getId());
+        Assert.assertEquals(CODE, paste.getBody());
+        Assert.assertEquals(ByteBuffer.wrap(CODE.getBytes(StandardCharsets.UTF_8)), paste.getBodyBytes());
+    }
+
+    @Test
+    public void testGhostbin() {
+        GhostbinServer ghostbinServer = new GhostbinServer(client, "10m", mock.getBaseUrl());
+        String id = ghostbinServer.createPaste(CODE, "html").sync();
+        GhostbinPaste paste = ghostbinServer.retrievePaste(id).sync();
+        Assert.assertEquals(id, paste.getId());
+        Assert.assertEquals(CODE, paste.getBody());
+        Assert.assertEquals("html", paste.getLanguage().getId());
+        Assert.assertEquals("10m", paste.getExpiration());
+    }
+
+    @Test
+    public void testIvanBin() {
+        IvanBinServer ivanBinServer = new IvanBinServer(client, mock.getBaseUrl());
+        String id = ivanBinServer.createPaste(CODE).sync();
+        IvanBinPaste paste = ivanBinServer.retrievePaste(id).sync();
+        Assert.assertEquals(id, paste.getId());
+        Assert.assertEquals(CODE, paste.getBody());
+        Assert.assertTrue(paste.getExpiresAt().isAfter(paste.getCreatedAt()));
+    }
+
+    @Test
+    public void testCodecParity() {
+        HasteServer haste = new HasteServer(client, mock.getBaseUrl());
+        GhostbinServer ghostbin = new GhostbinServer(client, "10m", mock.getBaseUrl());
+        IvanBinServer ivanBin = new IvanBinServer(client, mock.getBaseUrl());
+        SourcebinServer sourcebin = new SourcebinServer(client, mock.getBaseUrl());
+        String ghostbinId = ghostbin.createPaste(CODE, "html").sync();
+        String ivanBinId = ivanBin.createPaste(CODE).sync();
+        String sourcebinId = sourcebin.createPaste(CODE).sync();
+
+        List<List<Object>> results = new ArrayList<>();
+        for (JsonCodec codec : Arrays.asList(JsonCodec.orgJson(), JsonCodec.streaming())) {
+            haste.setJsonCodec(codec);
+            ghostbin.setJsonCodec(codec);
+            ivanBin.setJsonCodec(codec);
+            sourcebin.setJsonCodec(codec);
+            String hasteId = haste.createPaste(CODE).sync();
+            GhostbinPaste ghostbinPaste = ghostbin.retrievePaste(ghostbinId).sync();
+            IvanBinPaste ivanBinPaste = ivanBin.retrievePaste(ivanBinId).sync();
+            SourcebinPaste sourcebinPaste = sourcebin.retrievePaste(sourcebinId).sync();
+            Assert.assertEquals(CODE, haste.retrievePaste(hasteId).sync().getBody());
+            results.add(Arrays.asList(
+                    ghostbinPaste.getId(), ghostbinPaste.getBody(), ghostbinPaste.getLanguage().getId(),
+                    ghostbinPaste.getLanguage().getName(), ghostbinPaste.getExpiration(), ghostbinPaste.isEncrypted(),
+                    ivanBinPaste.getId(), ivanBinPaste.getBody(), ivanBinPaste.getCreatedAt(), ivanBinPaste.getExpiresAt(),
+                    sourcebinPaste.getId(), sourcebinPaste.getBody(), sourcebinPaste.getCreatedAt()));
+        }
+        Assert.assertEquals(CODE, results.get(0).get(1));
+        Assert.assertEquals(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void testStreamedBodyUsesResponseCharset() {
+        mock.enqueue(MockBinServer.Scripted.status(200)
+                .header("Content-Type", "application/json; charset=iso-8859-1")
+                .body("{\"binId\":\"a\",\"body\":\"caf\u00e9\"}".getBytes(StandardCharsets.ISO_8859_1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = new IvanBinServer(client, mock.getBaseUrl()).retrievePasteStream("a", out).sync();
+        Assert.assertEquals("caf\u00e9", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals(5, written);
+    }
+
+    @Test
+    public void testSourcebin() {
+        SourcebinServer sourcebinServer = new SourcebinServer(client, mock.getBaseUrl());
+        String id = sourcebinServer.createPaste(CODE).sync();
+        SourcebinPaste paste = sourcebinServer.retrievePaste(id).sync();
+        Assert.assertEquals(id, paste.getId());
+        Assert.assertEquals(CODE, paste.getBody());
+    }
+
+    @Test
+    public void testServiceConfiguredLikeServers() {
+        List<RequestMetrics> metrics = new CopyOnWriteArrayList<>();
+        RequestListener listener = metrics::add;
+        Compression compression = Compression.builder().minimumSize(Long.MAX_VALUE).build();
+        BinClient binClient = BinClient.builder()
+                .requestListener(listener)
+                .jsonCodec(JsonCodec.streaming())
+                .compression(compression)
+                .build();
+        try {
+            MockServiceProvider.setBaseUrl(mock.getBaseUrl());
+            HasteServer service = (HasteServer) binClient.service("mock");
+            Assert.assertSame(listener, service.getRequestListener());
+            Assert.assertSame(JsonCodec.streaming(), service.getJsonCodec());
+            Assert.assertSame(compression, service.getCompression());
+
+            String id = service.createPaste(CODE).sync();
+            Assert.assertEquals(CODE, service.retrievePaste(id).sync().getBody());
+            Assert.assertEquals(2, metrics.size());
+            RequestMetrics created = metrics.get(0);
+            Assert.assertEquals("hastebin", created.getServer());
+            Assert.assertEquals(200, created.getStatusCode());
+            // filled in by the TimingEventListener of the client's http client
+            Assert.assertTrue(created.getTimeToFirstByteNanos() >= 0);
+            Assert.assertEquals(CODE.getBytes(StandardCharsets.UTF_8).length, created.getRequestBytes());
+        } finally {
+            binClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownOnlyOwnedClients() {
+        new BinClient().shutdown();
+        Assert.assertFalse(BinClient.sharedHttpClient().dispatcher().executorService().isShutdown());
+        new BinClient(client).shutdown();
+        Assert.assertFalse(client.dispatcher().executorService().isShutdown());
+
+        BinClient owning = BinClient.builder().build();
+        owning.shutdown();
+        Assert.assertTrue(owning.getHttpClient().dispatcher().executorService().isShutdown());
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            BinClient.builder().executor(executor).build().shutdown();
+            Assert.assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            code.append(CODE).append('\n');
+        }
+        try (MockBinServer compressingMock = MockBinServer.builder().compression(true).start()) {
+            Compression compression = Compression.builder().requestEncoding(Compression.Encoding.DEFLATE).build();
+            SourcebinServer sourcebinServer = new SourcebinServer(client, compressingMock.getBaseUrl());
+            sourcebinServer.setCompression(compression);
+            String id = sourcebinServer.createPaste(code.toString()).sync();
+            Assert.assertEquals(code.toString(), sourcebinServer.retrievePaste(id).sync().getBody());
+            Assert.assertTrue(compression.isCompressing(HttpUrl.get(compressingMock.getBaseUrl()).host()));
+        }
+
+        Compression compression = Compression.gzip();
+        HasteServer hasteServer = new HasteServer(client, mock.getBaseUrl());
+        hasteServer.setCompression(compression);
+        String id = hasteServer.createPaste(code.toString()).sync();
+        Assert.assertEquals(code.toString(), hasteServer.retrievePaste(id).sync().getBody());
+        Assert.assertFalse(compression.isCompressing(HttpUrl.get(mock.getBaseUrl()).host()));
+    }
+
+    @Test
+    public void testDeadline() throws IOException, InterruptedException {
+        try (MockBinServer slowMock = MockBinServer.builder().latency(Duration.ofSeconds(2)).start()) {
+            IvanBinServer ivanBinServer = new IvanBinServer(client, slowMock.getBaseUrl());
+            long start = System.nanoTime();
+            try {
+                ivanBinServer.retrievePaste("missing").sync(Duration.ofMillis(200));
+                Assert.fail("Request did not time out");
+            } catch (RequestException e) {
+                Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+            try {
+                ivanBinServer.createPaste(CODE).future(Duration.ofMillis(200)).get();
+                Assert.fail("Request did not time out");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+            Assert.assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+        }
+
+        SourcebinServer sourcebinServer = new SourcebinServer(client, mock.getBaseUrl());
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+        String id = sourcebinServer.createPaste(CODE).deadline(deadline).sync();
+        Assert.assertEquals(CODE, sourcebinServer.retrievePaste(id).deadline(deadline).sync().getBody());
+    }
+
+    @Test
+    public void testVirtualThreads() throws InterruptedException {
+        OkHttpClient virtualClient = BinClient.builder()
+                .virtualThreads(true)
+                .maxRequests(256)
+                .maxRequestsPerHost(256)
+                .buildHttpClient();
+        ExecutorService executor = VirtualThreads.newExecutor();
+        try {
+            IvanBinServer ivanBinServer = new IvanBinServer(virtualClient, mock.getBaseUrl());
+            LoadGenerator.Report<String> report = LoadGenerator.run(500, 128,
+                    i -> ivanBinServer.createPaste("Paste #" + i).future(executor));
+            Assert.assertEquals(0, report.getFailures());
+            Assert.assertEquals("Paste #1", ivanBinServer.retrievePaste(report.getValue(1)).future().join().getBody());
+        } finally {
+            executor.shutdown();
+            virtualClient.dispatcher().executorService().shutdown();
+        }
+    }
+
+    @Test
+    public void testProcessorBackpressure() throws InterruptedException {
+        HasteServer hasteServer = new HasteServer(client, mock.getBaseUrl());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        PasteProcessor<String, String> processor = PasteProcessor.of(body -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return hasteServer.createPaste(body).future().whenComplete((id, error) -> inFlight.decrementAndGet());
+        }, 8);
+        rangePublisher(100).subscribe(processor);
+
+        List<String> ids = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        processor.subscribe(new Subscriber<String>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(3);
+            }
+
+            @Override
+            public void onNext(String id) {
+                ids.add(id);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure.set(throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(100, ids.size());
+        Assert.assertTrue("Demand of 3 exceeded: " + maxInFlight.get(), maxInFlight.get() <= 3);
+        Assert.assertEquals("Paste #42", hasteServer.retrievePaste(ids.get(42)).sync().getBody());
+    }
+
+    private static Publisher<String> rangePublisher(int count) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private final AtomicInteger next = new AtomicInteger();
+            private final AtomicInteger requested = new AtomicInteger();
+
+            @Override
+            public void request(long n) {
+                if (requested.getAndAdd((int) n) != 0) {
+                    return;
+                }
+                do {
+                    int i = next.getAndIncrement();
+                    if (i == count) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext("Paste #" + i);
+                } while (requested.decrementAndGet() != 0);
+            }
+
+            @Override
+            public void cancel() {
+                requested.set(Integer.MIN_VALUE);
+            }
+        });
+    }
+
+    @Test
+    public void testChunkedPaste() throws IOException {
+        StringBuilder code = new StringBuilder();
+        while (code.length() < 50_000) {
+            code.append(CODE).append('\n');
+        }
+        byte[] bytes = code.toString().getBytes(StandardCharsets.UTF_8);
+        try (MockBinServer limitedMock = MockBinServer.builder().maxPasteSize(10_000).start()) {
+            HasteServer hasteServer = new HasteServer(client, limitedMock.getBaseUrl());
+            Assert.assertNull(hasteServer.createPaste(code.toString()).sync(error -> null));
+
+            ChunkedPastes chunkedPastes = new ChunkedPastes(hasteServer, 10_000, 3);
+            String id = chunkedPastes.createPaste(code.toString()).join();
+            Assert.assertEquals(7, limitedMock.getPasteCount());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = chunkedPastes.retrievePaste(id).join()) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            Assert.assertArrayEquals(bytes, out.toByteArray());
+
+            String small = chunkedPastes.createPaste(CODE).join();
+            Assert.assertEquals(CODE, hasteServer.retrievePaste(small).sync().getBody());
+        }
+    }
+
+    @Test
+    public void testChunkedPasteLookalikeReturnedRaw() throws IOException {
+        HasteServer hasteServer = new HasteServer(client, mock.getBaseUrl());
+        ChunkedPastes chunkedPastes = new ChunkedPastes(hasteServer, 10_000, 3);
+        String lookalike = "binclient-chunked-paste v1\n" + CODE.length() + "\nabc\n";
+        String id = hasteServer.createPaste(lookalike).sync();
+        try (InputStream in = chunkedPastes.retrievePaste(id).join()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            Assert.assertEquals(lookalike, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testUploadDeduplication() throws IOException {
+        Path file = Files.createTempFile("binclient-dedup", ".bin");
+        try (MockBinServer dedupMock = MockBinServer.builder().start()) {
+            SourcebinServer sourcebinServer = new SourcebinServer(client, dedupMock.getBaseUrl());
+            String id;
+            try (UploadDeduplicator deduplicator = UploadDeduplicator.builder().file(file).build()) {
+                CompletableFuture<String> first = deduplicator.createPaste(sourcebinServer, CODE);
+                CompletableFuture<String> concurrent = deduplicator.createPaste(sourcebinServer, CODE);
+                id = first.join();
+                Assert.assertEquals(id, concurrent.join());
+                Assert.assertEquals(id, deduplicator.createPaste(sourcebinServer, CODE).join());
+                Assert.assertNotEquals(id, deduplicator.createPaste(sourcebinServer, CODE + "!").join());
+                Assert.assertEquals(2, dedupMock.getPasteCount());
+                Assert.assertEquals(2, deduplicator.getHitCount());
+            }
+
+            try (UploadDeduplicator reopened = UploadDeduplicator.builder().file(file).build()) {
+                Assert.assertEquals(2, reopened.size());
+                Assert.assertEquals(id, reopened.createPaste(sourcebinServer, CODE).join());
+                Assert.assertEquals(2, dedupMock.getPasteCount());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testUploadDeduplicationBoundedByPasteExpiry() throws IOException {
+        Path file = Files.createTempFile("binclient-dedup", ".bin");
+        try (MockBinServer dedupMock = MockBinServer.builder().start()) {
+            GhostbinServer ghostbinServer = new GhostbinServer(client, "10m", dedupMock.getBaseUrl());
+            try (UploadDeduplicator deduplicator = UploadDeduplicator.builder().file(file).build()) {
+                String id = deduplicator.createPaste(ghostbinServer, CODE).join();
+                // the expiry is known from the create request, the paste isn't retrieved to find it out
+                long requests = dedupMock.getRequestCount();
+                Assert.assertEquals(id, deduplicator.createPaste(ghostbinServer, CODE).join());
+                Assert.assertEquals(1, dedupMock.getPasteCount());
+                Assert.assertEquals(requests, dedupMock.getRequestCount());
+            }
+
+            Clock later = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(11));
+            try (UploadDeduplicator reopened = UploadDeduplicator.builder().clock(later).file(file).build()) {
+                Assert.assertEquals(0, reopened.size());
+                reopened.createPaste(ghostbinServer, CODE).join();
+                Assert.assertEquals(2, dedupMock.getPasteCount());
+            }
+
+            // ivanbin pastes expire, but when isn't known from the create request
+            IvanBinServer ivanBinServer = new IvanBinServer(client, dedupMock.getBaseUrl());
+            try (UploadDeduplicator deduplicator = UploadDeduplicator.builder().build()) {
+                deduplicator.createPaste(ivanBinServer, CODE).join();
+                deduplicator.createPaste(ivanBinServer, CODE).join();
+                Assert.assertEquals(4, dedupMock.getPasteCount());
+                Assert.assertEquals(0, deduplicator.size());
+                Assert.assertEquals(0, deduplicator.getHitCount());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testServiceConfiguredThroughInterface() {
+        MockServiceProvider.setBaseUrl(mock.getBaseUrl());
+        PasteService<?> service = PasteServices.create("mock", client);
+        CircuitBreaker breaker = CircuitBreaker.builder().windowSize(1).minimumCalls(1).build();
+        breaker.onFailure(breaker.tryAcquirePermission(), 0);
+        service.setRateLimiter(RateLimiter.create(100, 1));
+        service.setHedgePolicy(HedgePolicy.builder().build());
+        service.setCircuitBreaker(breaker);
+        try {
+            service.createPaste(CODE).sync();
+            Assert.fail("Expected the open circuit breaker to reject the request");
+        } catch (RequestException e) {
+            Assert.assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        }
+        HasteServer server = (HasteServer) service;
+        Assert.assertNotNull(server.getRateLimiter());
+        Assert.assertNotNull(server.getHedgePolicy());
+        Assert.assertSame(breaker, server.getCircuitBreaker());
+    }
+
+    @Test
+    public void testServiceFromContextClassLoader() throws IOException {
+        Path root = Files.createTempDirectory("binclient-services");
+        Path services = root.resolve("META-INF/services/" + PasteServiceProvider.class.getName());
+        Files.createDirectories(services.getParent());
+        // registered only in the child class loader, like a provider packaged with a plugin
+        Files.write(services, ContextServiceProvider.class.getName().getBytes(StandardCharsets.UTF_8));
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try (URLClassLoader plugin = new URLClassLoader(new URL[] {root.toUri().toURL()}, getClass().getClassLoader())) {
+            Assert.assertFalse(PasteServices.providers().stream().anyMatch(provider -> provider.getName().equals("context")));
+            thread.setContextClassLoader(plugin);
+            Assert.assertTrue(PasteServices.create("context", client) instanceof HasteServer);
+            Assert.assertEquals(1, PasteServices.providers().stream().filter(provider -> provider.getName().equals("mock")).count());
+        } finally {
+            thread.setContextClassLoader(previous);
+            Files.delete(services);
+        }
+    }
+
+    @Test
+    public void testFailoverOnServerError() throws IOException {
+        try (MockBinServer failing = MockBinServer.builder().start()) {
+            failing.enqueue(MockBinServer.Scripted.status(503));
+            HasteServer primary = new HasteServer(client, failing.getBaseUrl());
+            HasteServer secondary = new HasteServer(client, mock.getBaseUrl());
+            FailoverUploader uploader = FailoverUploader.builder()
+                    .backend("primary", primary::createPaste)
+                    .backend("secondary", secondary::createPaste)
+                    .build();
+
+            FailoverResult result = uploader.uploadSync(CODE);
+            Assert.assertEquals("secondary", result.getBackend());
+            Assert.assertEquals(CODE, secondary.retrievePaste(result.getId()).sync().getBody());
+            Assert.assertEquals(Collections.singleton("primary"), result.getFailures().keySet());
+            Assert.assertTrue(result.getFailures().get("primary") instanceof RequestException);
+            Assert.assertEquals(1, failing.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testFailoverOnConnectionFailure() throws IOException {
+        String closedBaseUrl;
+        try (MockBinServer closed = MockBinServer.builder().start()) {
+            closedBaseUrl = closed.getBaseUrl();
+        }
+        HasteServer unreachable = new HasteServer(client, closedBaseUrl);
+        HasteServer secondary = new HasteServer(client, mock.getBaseUrl());
+        FailoverResult result = FailoverUploader.builder()
+                .backend("unreachable", unreachable::createPaste)
+                .backend("secondary", secondary::createPaste)
+                .build()
+                .uploadSync(CODE);
+        Assert.assertEquals("secondary", result.getBackend());
+        Assert.assertTrue(result.getFailures().containsKey("unreachable"));
+    }
+
+    @Test
+    public void testFailoverSkipsOpenCircuitBreaker() throws IOException {
+        try (MockBinServer broken = MockBinServer.builder().start()) {
+            CircuitBreaker breaker = CircuitBreaker.builder().windowSize(2).minimumCalls(2).build();
+            for (int i = 0; i < 2; i++) {
+                breaker.onFailure(breaker.tryAcquirePermission(), 0);
+            }
+            HasteServer primary = new HasteServer(client, broken.getBaseUrl());
+            primary.setCircuitBreaker(breaker);
+            HasteServer secondary = new HasteServer(client, mock.getBaseUrl());
+            FailoverResult result = FailoverUploader.builder()
+                    .backend("primary", primary::createPaste)
+                    .backend("secondary", secondary::createPaste)
+                    .build()
+                    .uploadSync(CODE);
+            Assert.assertEquals("secondary", result.getBackend());
+            Assert.assertTrue(result.getFailures().get("primary") instanceof CircuitBreakerOpenException);
+            Assert.assertEquals(0, broken.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testFailoverReportsEveryFailure() throws IOException {
+        try (MockBinServer failing = MockBinServer.builder().start()) {
+            failing.enqueue(MockBinServer.Scripted.status(500));
+            failing.enqueue(MockBinServer.Scripted.status(503));
+            HasteServer server = new HasteServer(client, failing.getBaseUrl());
+            FailoverUploader uploader = FailoverUploader.builder()
+                    .backend("first", server::createPaste)
+                    .backend("second", server::createPaste)
+                    .build();
+            try {
+                uploader.uploadSync(CODE);
+                Assert.fail("Expected every backend to fail");
+            } catch (RequestException e) {
+                Assert.assertEquals(2, e.getSuppressed().length);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentLoad() throws InterruptedException {
+        HasteServer hasteServer = new HasteServer(client, mock.getBaseUrl());
+        LoadGenerator.Report<String> report = LoadGenerator.run(500, 16,
+                i -> hasteServer.createPaste("Paste #" + i).future());
+        Assert.assertEquals(0, report.getFailures());
+        Assert.assertEquals(500, report.getRequests());
+    }
+
+    public static final class ContextServiceProvider implements PasteServiceProvider {
+
+        @Override
+        public String getName() {
+            return "context";
+        }
+
+        @Override
+        public PasteService<?> create(OkHttpClient client) {
+            return new HasteServer(client, mock.getBaseUrl());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.servers.HasteServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class CoalescingRetrieverTest {
+
+    private final Map<String, String> pastes = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private OkHttpClient client;
+    private HasteServer server;
+
+    @Before
+    public void setUp() {
+        // serves the pastes above in process, slowly enough for retrievals to overlap
+        client = new OkHttpClient.Builder().addInterceptor(this::serve).build();
+        client.dispatcher().setMaxRequestsPerHost(16);
+        server = new HasteServer(client, "http://localhost/");
+        pastes.put("a", "a\n");
+        pastes.put("b", "b\n");
+        pastes.put("hello", "Hello, world!\n");
+    }
+
+    @After
+    public void tearDown() {
+        client.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void testConcurrentRetrievalsShareOneRequest() throws Exception {
+        CoalescingRetriever<Paste> retriever = new CoalescingRetriever<>(server::retrievePaste);
+
+        List<CompletableFuture<Paste>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(retriever.retrieve("hello"));
+        }
+        for (CompletableFuture<Paste> future : futures) {
+            Assert.assertEquals("Hello, world!\n", future.get(5, TimeUnit.SECONDS).getBody());
+        }
+        Assert.assertEquals(1, requests.get());
+
+        // a caller cancelling its future doesn't affect the others
+        CompletableFuture<Paste> cancelled = retriever.retrieve("hello");
+        CompletableFuture<Paste> other = retriever.retrieve("hello");
+        cancelled.cancel(true);
+        Assert.assertEquals("Hello, world!\n", other.get(5, TimeUnit.SECONDS).getBody());
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testFailedRetrievalIsNotKept() throws Exception {
+        CoalescingRetriever<Paste> retriever = new CoalescingRetriever<>(server::retrievePaste);
+        try {
+            retriever.retrieve("missing").get(5, TimeUnit.SECONDS);
+            Assert.fail("retrieved a missing paste");
+        } catch (ExecutionException expected) {
+        }
+        try {
+            retriever.retrieve("missing").get(5, TimeUnit.SECONDS);
+            Assert.fail("retrieved a missing paste");
+        } catch (ExecutionException expected) {
+        }
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testRetrievePastesDeduplicates() throws Exception {
+        CoalescingRetriever<Paste> retriever = new CoalescingRetriever<>(server::retrievePaste);
+
+        BatchResult<Paste> result = retriever.retrievePastes(Arrays.asList("a", "b", "a", "missing", "a")).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(5, result.getValues().size());
+        Assert.assertEquals("a\n", result.get(0).getBody());
+        Assert.assertEquals("b\n", result.get(1).getBody());
+        Assert.assertEquals("a\n", result.get(2).getBody());
+        Assert.assertEquals("a\n", result.get(4).getBody());
+        Assert.assertEquals(1, result.getFailures().size());
+        Assert.assertNotNull(result.getFailures().get(3));
+    }
+
+    private Response serve(Interceptor.Chain chain) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        String path = chain.request().url().encodedPath();
+        String body = path.startsWith("/raw/") ? pastes.get(path.substring("/raw/".length())) : null;
+        return new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(body == null ? 404 : 200)
+                .message("")
+                .body(ResponseBody.create(MediaType.parse("text/plain"), body == null ? "Not found" : body))
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PasteBatchTest {
+
+    private static List<Integer> inputs(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testValuesInInputOrder() throws Exception {
+        List<CompletableFuture<String>> started = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<BatchResult<String>> result = PasteBatch.run(inputs(10), input -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }, 10);
+        Assert.assertEquals(10, started.size());
+        // complete in reverse order
+        for (int i = 9; i >= 0; i--) {
+            started.get(i).complete("value " + i);
+        }
+        BatchResult<String> batch = result.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(batch.isSuccessful());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("value " + i, batch.get(i));
+        }
+    }
+
+    @Test
+    public void testFailuresAreIsolated() throws Exception {
+        BatchResult<Integer> batch = PasteBatch.run(inputs(6), input -> {
+            if (input == 1) {
+                throw new IllegalStateException("thrown");
+            }
+            if (input == 4) {
+                CompletableFuture<Integer> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IOException("failed"));
+                return failed;
+            }
+            return CompletableFuture.supplyAsync(() -> input * 2);
+        }, 2).get(5, TimeUnit.SECONDS);
+
+        Assert.assertFalse(batch.isSuccessful());
+        Assert.assertEquals(2, batch.getFailures().size());
+        Assert.assertTrue(batch.getFailures().get(1) instanceof IllegalStateException);
+        Assert.assertTrue(batch.getFailures().get(4) instanceof IOException);
+        Assert.assertNull(batch.get(1));
+        Assert.assertEquals(Integer.valueOf(0), batch.get(0));
+        Assert.assertEquals(Integer.valueOf(10), batch.get(5));
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try {
+            BatchResult<Integer> batch = PasteBatch.run(inputs(50), input -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    return input;
+                }, executor);
+            }, 3).get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(batch.isSuccessful());
+            Assert.assertEquals(3, maxInFlight.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSynchronousCompletionDoesNotRecurse() throws Exception {
+        BatchResult<Integer> batch = PasteBatch.run(inputs(100_000), CompletableFuture::completedFuture, 4)
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(100_000, batch.getValues().size());
+        Assert.assertEquals(Integer.valueOf(99_999), batch.get(99_999));
+    }
+
+    @Test
+    public void testCancellation() {
+        List<CompletableFuture<String>> started = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<BatchResult<String>> result = PasteBatch.run(inputs(10), input -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }, 3);
+        Assert.assertTrue(result.cancel(true));
+        Assert.assertEquals(3, started.size());
+        for (CompletableFuture<String> future : started) {
+            Assert.assertTrue(future.isCancelled());
+        }
+    }
+}
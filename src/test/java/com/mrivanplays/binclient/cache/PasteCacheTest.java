@@ -0,0 +1,193 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.cache;
+
+import com.mrivanplays.binclient.paste.GhostbinPaste;
+import com.mrivanplays.binclient.paste.IvanBinPaste;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.paste.impl.GhostbinPasteImpl;
+import com.mrivanplays.binclient.paste.impl.IvanBinPasteImpl;
+import com.mrivanplays.binclient.paste.impl.PasteImpl;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class PasteCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHitAndMiss() {
+        PasteCache cache = PasteCache.builder().build();
+        Assert.assertNull(cache.get("haste", "abc"));
+        cache.put("haste", new PasteImpl("abc", "Hello, world!", "https://hasteb.in/abc"));
+        Paste paste = cache.get("haste", "abc");
+        Assert.assertEquals("Hello, world!", paste.getBody());
+        Assert.assertNull(cache.get("sourcebin", "abc"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        PasteCache cache = PasteCache.builder().maximumWeight(3 * (64 + 2 * 3)).build();
+        cache.put("haste", new PasteImpl("a", "a", "a"));
+        cache.put("haste", new PasteImpl("b", "b", "b"));
+        cache.put("haste", new PasteImpl("c", "c", "c"));
+        cache.get("haste", "a");
+        cache.put("haste", new PasteImpl("d", "d", "d"));
+
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNull(cache.get("haste", "b"));
+        Assert.assertNotNull(cache.get("haste", "a"));
+    }
+
+    @Test
+    public void testExpiration() {
+        MutableClock clock = new MutableClock();
+        PasteCache cache = PasteCache.builder().expireAfterWrite(Duration.ofMinutes(10)).clock(clock).build();
+        OffsetDateTime now = OffsetDateTime.ofInstant(clock.instant(), ZoneOffset.UTC);
+        cache.put("ivanbin", new IvanBinPasteImpl("a", "a", "a", now, now.plusMinutes(1)));
+        cache.put("haste", new PasteImpl("b", "b", "b"));
+
+        clock.advance(Duration.ofMinutes(2));
+        Assert.assertNull(cache.<IvanBinPaste>get("ivanbin", "a"));
+        Assert.assertNotNull(cache.get("haste", "b"));
+
+        clock.advance(Duration.ofMinutes(10));
+        Assert.assertNull(cache.get("haste", "b"));
+    }
+
+    @Test
+    public void testDiskTierSurvivesRestart() throws IOException {
+        Path segment = folder.getRoot().toPath().resolve("pastes.bin");
+        try (DiskPasteCache diskCache = DiskPasteCache.open(segment)) {
+            PasteCache cache = PasteCache.builder().diskCache(diskCache).build();
+            cache.put("ghostbin", new GhostbinPasteImpl("a", "Hello, world!", "https://paste.menudocs.org/paste/a",
+                    new GhostbinPaste.Language("HTML", "html"), "-1", false));
+            cache.put("haste", new PasteImpl("b", "b", "b"));
+            cache.invalidate("haste", "b");
+        }
+
+        try (DiskPasteCache diskCache = DiskPasteCache.open(segment)) {
+            diskCache.compact();
+            PasteCache cache = PasteCache.builder().diskCache(diskCache).build();
+            GhostbinPaste paste = cache.get("ghostbin", "a");
+            Assert.assertEquals("Hello, world!", paste.getBody());
+            Assert.assertEquals("html", paste.getLanguage().getId());
+            Assert.assertNull(cache.get("haste", "b"));
+            Assert.assertEquals(1, cache.getDiskHitCount());
+            Assert.assertEquals(1, diskCache.size());
+        }
+    }
+
+    @Test
+    public void testDiskHitKeepsStoredExpiry() throws IOException {
+        MutableClock clock = new MutableClock();
+        Path segment = folder.getRoot().toPath().resolve("expiry.bin");
+        try (DiskPasteCache diskCache = DiskPasteCache.open(segment)) {
+            diskCache.put("haste", new PasteImpl("a", "a", "a"), clock.millis() + Duration.ofMinutes(1).toMillis());
+            PasteCache cache = PasteCache.builder().expireAfterWrite(Duration.ofMinutes(10)).clock(clock).diskCache(diskCache).build();
+            Assert.assertNotNull(cache.get("haste", "a"));
+            Assert.assertEquals(1, cache.getDiskHitCount());
+
+            clock.advance(Duration.ofMinutes(2));
+            Assert.assertNull(cache.get("haste", "a"));
+        }
+    }
+
+    @Test
+    public void testDiskTierReadsAppendedRecords() throws IOException {
+        Path segment = folder.getRoot().toPath().resolve("appended.bin");
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 10_000) {
+            body.append("Hello, world! ");
+        }
+        try (DiskPasteCache diskCache = DiskPasteCache.open(segment)) {
+            // ~3 MiB, so records end up both in remapped regions and in the unmapped tail
+            for (int i = 0; i < 300; i++) {
+                diskCache.put("haste", new PasteImpl("p" + i, body + Integer.toString(i), "p" + i));
+            }
+            for (int i = 0; i < 300; i++) {
+                Paste paste = diskCache.get("haste", "p" + i);
+                Assert.assertEquals(body + Integer.toString(i), paste.getBody());
+            }
+        }
+    }
+
+    @Test
+    public void testDiskTierCompactsWhenFull() throws IOException {
+        Path segment = folder.getRoot().toPath().resolve("full.bin");
+        try (DiskPasteCache diskCache = DiskPasteCache.open(segment, 200)) {
+            for (int i = 0; i < 5; i++) {
+                // overwrites leave garbage behind, which the compaction on a full segment drops
+                diskCache.put("haste", new PasteImpl("a", "Hello, world! " + i, "a"));
+            }
+            Assert.assertEquals("Hello, world! 4", diskCache.<Paste>get("haste", "a").getBody());
+            Assert.assertEquals(0, diskCache.getRejectedCount());
+
+            for (int i = 0; i < 5; i++) {
+                diskCache.put("haste", new PasteImpl("b" + i, "Hello, world!", "b" + i));
+            }
+            Assert.assertTrue(diskCache.getRejectedCount() > 0);
+            Assert.assertEquals("Hello, world! 4", diskCache.<Paste>get("haste", "a").getBody());
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2019-10-10T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JsonCodecTest {
+
+    // responses of every server, with the members each server reads
+    private static final String[][] FIXTURES = {
+            // hastebin, sourcebin create
+            {"{\"key\":\"aBcDeF\"}", "key"},
+            // ghostbin paste
+            {"{\"id\":\"x1\",\"body\":\"line 1\\nline 2 \\\"q\\\" caf\\u00e9 \\ud83d\\ude00 <b>&amp;</b>\","
+                    + "\"language\":{\"name\":\"Java\",\"id\":\"java\"},\"expiration\":\"10m\",\"encrypted\":false,"
+                    + "\"views\":12,\"tags\":[\"a\",{\"b\":[]}]}",
+                    "id,body,language,expiration,encrypted"},
+            {"{\"id\":\"x2\",\"body\":\"\",\"language\":null,\"expiration\":\"-1\",\"encrypted\":true}",
+                    "id,body,language,expiration,encrypted"},
+            // ivanbin create, info
+            {"{\"binId\":\"abc\"}", "binId"},
+            {"{\"binId\":\"abc\",\"body\":\"<h1>Hello, world!</h1>\\r\\n\\t\\/\",\"createdAt\":\"Thu, 10 Oct 2019 10:00:00 GMT\","
+                    + "\"expiresAt\":\"Thu, 17 Oct 2019 10:00:00 GMT\",\"meta\":{\"a\":[1,2.5,-3e2]}}",
+                    "binId,body,createdAt,expiresAt"},
+            // sourcebin bin
+            {"{\"key\":\"abc\",\"code\":\"fn main() {}\",\"created\":\"2019-10-10T10:00:00Z\",\"id\":42,"
+                    + "\"files\":[{\"languageId\":222,\"content\":\"}\"}]}",
+                    "key,code,created,id"},
+            // members missing altogether
+            {"{}", "key,body,encrypted"},
+    };
+
+    @Test
+    public void testCodecParity() throws IOException {
+        for (String[] fixture : FIXTURES) {
+            List<String> fields = Arrays.asList(fixture[1].split(","));
+            JsonObject expected = JsonCodec.orgJson().read(new StringReader(fixture[0]), fields);
+            JsonObject actual = JsonCodec.streaming().read(new StringReader(fixture[0]), fields);
+            assertSameMembers(fixture[0], fields, expected, actual);
+        }
+    }
+
+    @Test
+    public void testNestedObjectParity() throws IOException {
+        String json = FIXTURES[1][0];
+        List<String> fields = Collections.singletonList("language");
+        JsonObject expected = JsonCodec.orgJson().read(new StringReader(json), fields).getObject("language");
+        JsonObject actual = JsonCodec.streaming().read(new StringReader(json), fields).getObject("language");
+        assertSameMembers(json, Arrays.asList("name", "id", "missing"), expected, actual);
+    }
+
+    @Test
+    public void testMalformedJson() {
+        for (JsonCodec codec : Arrays.asList(JsonCodec.orgJson(), JsonCodec.streaming())) {
+            for (String json : Arrays.asList("", "[]", "{\"key\":\"abc", "{\"key\" \"abc\"}")) {
+                try {
+                    codec.read(new StringReader(json), Collections.singletonList("key"));
+                    Assert.fail(codec + " read malformed json: " + json);
+                } catch (IOException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultCodec() {
+        String previous = System.getProperty("binclient.json.codec");
+        try {
+            System.clearProperty("binclient.json.codec");
+            Assert.assertSame(JsonCodec.orgJson(), JsonCodec.defaultCodec());
+            System.setProperty("binclient.json.codec", "streaming");
+            Assert.assertSame(JsonCodec.streaming(), JsonCodec.defaultCodec());
+        } finally {
+            if (previous == null) {
+                System.clearProperty("binclient.json.codec");
+            } else {
+                System.setProperty("binclient.json.codec", previous);
+            }
+        }
+    }
+
+    private static void assertSameMembers(String json, List<String> fields, JsonObject expected, JsonObject actual) {
+        for (String field : fields) {
+            String message = field + " of " + json;
+            Assert.assertEquals(message, expected.has(field), actual.has(field));
+            Assert.assertEquals(message, expected.getString(field), actual.getString(field));
+            Assert.assertEquals(message, expected.getBoolean(field, true), actual.getBoolean(field, true));
+            Assert.assertEquals(message, expected.getBoolean(field, false), actual.getBoolean(field, false));
+            Assert.assertEquals(message, expected.getObject(field) == null, actual.getObject(field) == null);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.json;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testEscapes() throws IOException {
+        String json = "{\"a\":\"\\\"\\\\\\/\\b\\f\\n\\r\\t\"}";
+        Assert.assertEquals("\"\\/\b\f\n\r\t", readField(new StringReader(json), "a"));
+        Assert.assertEquals("\"\\/\b\f\n\r\t", readField(new OneCharReader(json), "a"));
+    }
+
+    @Test
+    public void testUnicodeEscapes() throws IOException {
+        String json = "{\"a\":\"caf\\u00e9 \\u00C9 \\uD83D\\uDE00!\"}";
+        Assert.assertEquals("caf\u00e9 \u00c9 \ud83d\ude00!", readField(new StringReader(json), "a"));
+        // escapes split across buffer refills
+        Assert.assertEquals("caf\u00e9 \u00c9 \ud83d\ude00!", readField(new OneCharReader(json), "a"));
+
+        StringWriter out = new StringWriter();
+        JsonReader reader = new JsonReader(new OneCharReader(json));
+        reader.beginObject();
+        Assert.assertTrue(reader.seekName("a"));
+        reader.nextString(out);
+        Assert.assertEquals("caf\u00e9 \u00c9 \ud83d\ude00!", out.toString());
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        String json = "[0, -1, 12.5, 1e3, -0.25E-2, true, null]";
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.beginArray();
+        Assert.assertEquals(JsonReader.Token.NUMBER, reader.peek());
+        Assert.assertEquals("0", reader.nextString());
+        Assert.assertEquals("-1", reader.nextString());
+        Assert.assertEquals("12.5", reader.nextString());
+        Assert.assertEquals("1e3", reader.nextString());
+        Assert.assertEquals("-0.25E-2", reader.nextString());
+        Assert.assertTrue(reader.nextBoolean());
+        Assert.assertEquals(JsonReader.Token.NULL, reader.peek());
+        Assert.assertNull(reader.nextString());
+        Assert.assertFalse(reader.hasNext());
+        reader.endArray();
+        Assert.assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+
+        for (String malformed : new String[]{"01", "1.", "-", "+1", "1e", "xyz"}) {
+            assertMalformed("{\"a\":" + malformed + "}", "a");
+        }
+    }
+
+    @Test
+    public void testSkipsNestedValues() throws IOException {
+        String json = "{\"skip\":{\"a\":[1,{\"b\":\"}]\\\"\"},[]],\"c\":\"x\"},\"arr\":[[],[{}],\"]\"],\"n\":-2.5,"
+                + "\"want\":\"v\"}";
+        Assert.assertEquals("v", readField(new StringReader(json), "want"));
+        Assert.assertEquals("v", readField(new OneCharReader(json), "want"));
+        Assert.assertNull(readField(new StringReader("{\"a\":{\"want\":\"nested\"}}"), "want"));
+    }
+
+    @Test
+    public void testMalformedInput() {
+        assertMalformed("{\"a\" \"b\"}", "a");
+        assertMalformed("{\"x\":1 \"a\":\"b\"}", "a");
+        assertMalformed("[\"a\"]", "a");
+        assertMalformed("{\"a\":\"\\x\"}", "a");
+        assertMalformed("{\"a\":\"\\u12G4\"}", "a");
+        assertMalformed("{\"x\":nul, \"a\":\"b\"}", "a");
+    }
+
+    @Test
+    public void testEndOfInput() {
+        assertMalformed("{\"a\":\"abc", "a");
+        assertMalformed("{\"a\":\"abc\\", "a");
+        assertMalformed("{\"a\":\"\\u00", "a");
+        assertMalformed("{\"a\"", "a");
+        assertMalformed("{\"x\":[1, 2", "a");
+        assertMalformed("", "a");
+    }
+
+    private static String readField(Reader in, String name) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        String value = reader.seekName(name) ? reader.nextString() : null;
+        if (value != null) {
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    private static void assertMalformed(String json, String name) {
+        try {
+            readField(new StringReader(json), name);
+            Assert.fail("read malformed json: " + json);
+        } catch (IOException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().startsWith("Malformed json"));
+        }
+    }
+
+    /**
+     * Returns a single char per read, so every token crosses a buffer refill.
+     */
+    private static final class OneCharReader extends Reader {
+
+        private final String json;
+        private int pos;
+
+        OneCharReader(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) {
+            if (pos == json.length()) {
+                return -1;
+            }
+            buffer[off] = json.charAt(pos++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.metrics;
+
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.OkHttpClient;
+
+public class MicrometerRequestListenerTest {
+
+    private HttpServer httpServer;
+    private OkHttpClient client;
+    private SimpleMeterRegistry registry;
+    private HasteServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.createContext("/", MicrometerRequestListenerTest::handle);
+        httpServer.start();
+        // built with the event listener, timing the connection phases
+        client = BinClient.builder().buildHttpClient();
+        registry = new SimpleMeterRegistry();
+        server = new HasteServer(client, "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/");
+        server.setRequestListener(new MicrometerRequestListener(registry, false));
+    }
+
+    @After
+    public void tearDown() {
+        httpServer.stop(0);
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testSuccess() {
+        server.createPaste("Hello, world!").sync();
+
+        Timer timer = registry.find("binclient.requests")
+                .tag("server", "hastebin")
+                .tag("operation", "create")
+                .tag("method", "POST")
+                .tag("status", "200")
+                .tag("outcome", "SUCCESS")
+                .tag("exception", "none")
+                .timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(1, timer.count());
+        Assert.assertNotNull(registry.find("binclient.requests.phase").tag("phase", "ttfb").tag("operation", "create").timer());
+
+        DistributionSummary requestSize = registry.find("binclient.requests.size").tag("operation", "create").summary();
+        Assert.assertEquals(1, requestSize.count());
+        Assert.assertEquals("Hello, world!".length(), requestSize.totalAmount(), 0);
+        Assert.assertEquals(0, registry.find("binclient.requests.retries").tag("operation", "create").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void testFailure() {
+        try {
+            server.retrievePaste("missing").sync();
+            Assert.fail("Expected the paste to be missing");
+        } catch (RuntimeException expected) {
+        }
+
+        Timer timer = registry.find("binclient.requests")
+                .tag("operation", "retrieve")
+                .tag("method", "GET")
+                .tag("status", "404")
+                .tag("outcome", "FAILURE")
+                .timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(1, timer.count());
+        Assert.assertNotEquals("none", timer.getId().getTag("exception"));
+    }
+
+    @Test
+    public void testConnectionFailure() {
+        httpServer.stop(0);
+        try {
+            server.createPaste("Hello, world!").sync();
+            Assert.fail("Expected the connection to fail");
+        } catch (RuntimeException expected) {
+        }
+
+        Timer timer = registry.find("binclient.requests")
+                .tag("operation", "create")
+                .tag("status", "NONE")
+                .tag("outcome", "FAILURE")
+                .timer();
+        Assert.assertNotNull(timer);
+        Assert.assertEquals(1, timer.count());
+        // no response, so no response size either
+        Assert.assertNull(registry.find("binclient.responses.size").summary());
+    }
+
+    /**
+     * Answers a created paste with its key, and everything else with a 404.
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // drained, so the connection can be reused
+            }
+        }
+        boolean create = exchange.getRequestMethod().equals("POST");
+        byte[] body = (create ? "{\"key\":\"abc\"}" : "Not found").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(create ? 200 : 404, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.mock;
+
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.paste.Paste;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.servers.IvanBinServer;
+import com.mrivanplays.binclient.servers.SourcebinServer;
+import com.mrivanplays.binclient.service.PasteService;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Drives requests at a fixed concurrency and reports throughput and latency percentiles. Running {@link
+ * #main(String[])} starts a {@link MockBinServer} and load tests every server class against it.
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Runs the specified amount of requests, keeping <code>concurrency</code> of them in flight.
+     *
+     * @param requests    amount of requests
+     * @param concurrency maximum amount of requests in flight
+     * @param request     function, starting the request with the specified index
+     * @param <T>         type of value
+     * @return report
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    public static <T> Report<T> run(int requests, int concurrency, IntFunction<CompletableFuture<T>> request)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        long[] latencies = new long[requests];
+        AtomicReferenceArray<T> values = new AtomicReferenceArray<>(requests);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            permits.acquire();
+            int index = i;
+            long requestStart = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = request.apply(i);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((value, error) -> {
+                latencies[index] = System.nanoTime() - requestStart;
+                if (error != null) {
+                    failures.incrementAndGet();
+                } else {
+                    values.set(index, value);
+                }
+                permits.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        return new Report<>(System.nanoTime() - start, latencies, values, failures.get());
+    }
+
+    /**
+     * Starts a mock server and load tests every server class against it. Arguments, all optional: concurrency
+     * (32), requests per server and operation (2000), latency in milliseconds (20), error rate (0), max requests
+     * per second (0, unlimited).
+     *
+     * @param args arguments
+     * @throws Exception if the mock server could not be started
+     */
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int latency = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        int maxRequestsPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        try (MockBinServer mock = MockBinServer.builder()
+                .latency(Duration.ofMillis(latency))
+                .latencyJitter(Duration.ofMillis(latency / 2))
+                .errorRate(errorRate)
+                .maxRequestsPerSecond(maxRequestsPerSecond)
+                .start()) {
+            OkHttpClient client = BinClient.builder()
+                    .maxRequests(concurrency)
+                    .maxRequestsPerHost(concurrency)
+                    .maxIdleConnections(concurrency)
+                    .buildHttpClient();
+            String baseUrl = mock.getBaseUrl();
+            List<PasteService<?>> services = Arrays.asList(
+                    new HasteServer(client, baseUrl),
+                    new GhostbinServer(client, "1d", baseUrl),
+                    new IvanBinServer(client, baseUrl),
+                    new SourcebinServer(client, baseUrl)
+            );
+            System.out.println("concurrency=" + concurrency + " requests=" + requests + " latency=" + latency
+                    + "ms errorRate=" + errorRate + " maxRequestsPerSecond=" + maxRequestsPerSecond);
+            for (PasteService<?> service : services) {
+                Report<String> created = run(requests, concurrency,
+                        i -> service.createPaste("Paste #" + i + " from the load generator").future());
+                System.out.println(service.getName() + " create:   " + created);
+                Report<String> retrieved = run(requests, concurrency, i -> {
+                    String id = created.getValue(i);
+                    if (id == null) {
+                        CompletableFuture<String> skipped = new CompletableFuture<>();
+                        skipped.completeExceptionally(new IllegalStateException("Paste #" + i + " was not created"));
+                        return skipped;
+                    }
+                    return service.retrievePaste(id).future().thenApply(Paste::getBody);
+                });
+                System.out.println(service.getName() + " retrieve: " + retrieved);
+            }
+            System.out.println("mock server: requests=" + mock.getRequestCount() + " errors=" + mock.getErrorCount()
+                    + " throttled=" + mock.getThrottledCount());
+            client.dispatcher().executorService().shutdown();
+        }
+    }
+
+    /**
+     * Represents the result of a load run
+     *
+     * @param <T> type of value
+     */
+    public static final class Report<T> {
+
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+        private final AtomicReferenceArray<T> values;
+        private final int failures;
+
+        Report(long elapsedNanos, long[] latencies, AtomicReferenceArray<T> values, int failures) {
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.values = values;
+            this.failures = failures;
+        }
+
+        /**
+         * Returns the amount of requests made
+         *
+         * @return requests
+         */
+        public int getRequests() {
+            return sortedLatencies.length;
+        }
+
+        /**
+         * Returns the amount of failed requests
+         *
+         * @return failures
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the value of the request with the specified index
+         *
+         * @param index index
+         * @return value, or <code>null</code> if that request failed
+         */
+        public T getValue(int index) {
+            return values.get(index);
+        }
+
+        /**
+         * Returns the completed requests per second
+         *
+         * @return throughput
+         */
+        public double getThroughput() {
+            return getRequests() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * Returns the latency, the specified fraction of requests completed within
+         *
+         * @param percentile percentile, between 0 and 1
+         * @return latency in milliseconds
+         */
+        public double getLatencyMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d failed, %.1f req/s, p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                    getRequests(), failures, getThroughput(), getLatencyMillis(0.5), getLatencyMillis(0.9),
+                    getLatencyMillis(0.99), getLatencyMillis(1));
+        }
+    }
+}
@@ -0,0 +1,614 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.mock;
+
+import com.mrivanplays.binclient.request.RateLimiter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A local stand-in for every supported bin server, emulating the endpoints the server classes use:
+ * <ul>
+ * <li>hastebin: <code>POST /documents</code>, <code>GET /raw/{id}</code></li>
+ * <li>ghostbin: <code>POST /paste/new</code>, <code>GET /paste/{id}.json</code></li>
+ * <li>ivanbin: <code>POST /api/create</code>, <code>GET /api/info/{id}</code></li>
+ * <li>sourcebin: <code>POST /api/bin</code>, <code>GET /api/bin/{id}</code></li>
+ * </ul>
+ * Pastes are kept in memory. Latency, an error rate (answered with 500) and throttling (answered with 429) can be
+ * configured to test behaviour under load without network. Compressed request bodies are refused with 415, unless
+ * compression is enabled. Like hastebin, request bodies can be limited in size (answered with 413). Responses can also
+ * be scripted with {@link #enqueue(Scripted)}, answering the next requests regardless of their path.
+ */
+public final class MockBinServer implements Closeable {
+
+    static {
+        // the jdk server writes headers and body separately, which stalls on nagle + delayed acks otherwise
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double errorRate;
+    private final RateLimiter throttle;
+    private final boolean compression;
+    private final int maxPasteSize;
+
+    private final Map<String, StoredPaste> pastes = new ConcurrentHashMap<>();
+    private final Queue<Scripted> scripted = new ConcurrentLinkedQueue<>();
+    private final AtomicLong ids = new AtomicLong(ThreadLocalRandom.current().nextInt(1 << 20));
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private MockBinServer(Builder builder) throws IOException {
+        this.latency = builder.latency;
+        this.latencyJitter = builder.latencyJitter;
+        this.errorRate = builder.errorRate;
+        this.compression = builder.compression;
+        this.maxPasteSize = builder.maxPasteSize;
+        this.throttle = builder.maxRequestsPerSecond > 0
+                ? RateLimiter.create(builder.maxRequestsPerSecond, Math.max(1, builder.maxRequestsPerSecond / 10))
+                : null;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "MockBinServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Creates a new builder
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the base url, the server classes should be pointed at
+     *
+     * @return base url, ending with a slash
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Returns the amount of requests received
+     *
+     * @return requests
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the amount of requests, answered with an injected error
+     *
+     * @return errors
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the amount of requests, answered with 429 because of throttling
+     *
+     * @return throttled requests
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Returns the amount of pastes stored
+     *
+     * @return pastes
+     */
+    public int getPasteCount() {
+        return pastes.size();
+    }
+
+    /**
+     * Answers the next request, which isn't answered by an earlier scripted response, with the specified response
+     *
+     * @param response scripted response
+     */
+    public void enqueue(Scripted response) {
+        scripted.add(response);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            Scripted response = scripted.poll();
+            if (response != null) {
+                drain(exchange.getRequestBody());
+                response.send(exchange);
+                return;
+            }
+            sleep();
+            if (throttle != null && !throttle.tryAcquire()) {
+                throttled.increment();
+                drain(exchange.getRequestBody());
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, 429, "text/plain", "Too many requests");
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                drain(exchange.getRequestBody());
+                send(exchange, 500, "text/plain", "Injected error");
+                return;
+            }
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            if (contentEncoding != null && !compression) {
+                drain(exchange.getRequestBody());
+                send(exchange, 415, "text/plain", "Unsupported content encoding");
+                return;
+            }
+            route(exchange);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if (method.equals("POST")) {
+            String body = read(decode(exchange.getRequestBody(), exchange.getRequestHeaders().getFirst("Content-Encoding")));
+            if (maxPasteSize > 0 && body.length() > maxPasteSize) {
+                send(exchange, 413, "application/json", new JSONObject().put("message", "Document exceeds maximum length.").toString());
+                return;
+            }
+            switch (path) {
+                case "/documents":
+                    send(exchange, 200, "application/json", new JSONObject().put("key", store(body, null, null)).toString());
+                    return;
+                case "/paste/new":
+                    Map<String, String> form = parseForm(body);
+                    String id = store(form.getOrDefault("text", ""), form.get("lang"), form.get("expire"));
+                    exchange.getResponseHeaders().add("Location", "/paste/" + id);
+                    send(exchange, 303, "text/plain", "");
+                    return;
+                case "/api/create":
+                    send(exchange, 200, "application/json", new JSONObject().put("binId", store(body, null, null)).toString());
+                    return;
+                case "/api/bin":
+                    send(exchange, 200, "application/json", new JSONObject().put("key", store(body, null, null)).toString());
+                    return;
+                default:
+                    send(exchange, 404, "text/plain", "Not found");
+                    return;
+            }
+        }
+        if (path.startsWith("/raw/")) {
+            StoredPaste paste = pastes.get(path.substring("/raw/".length()));
+            if (paste == null) {
+                send(exchange, 404, "text/plain", "Not found");
+            } else {
+                send(exchange, 200, "text/plain", paste.body);
+            }
+            return;
+        }
+        if (path.startsWith("/paste/")) {
+            String id = path.substring("/paste/".length());
+            boolean json = id.endsWith(".json");
+            StoredPaste paste = pastes.get(json ? id.substring(0, id.length() - ".json".length()) : id);
+            if (paste == null) {
+                send(exchange, 404, "text/plain", "Not found");
+            } else if (json) {
+                String language = paste.language == null ? "text" : paste.language;
+                send(exchange, 200, "application/json", new JSONObject()
+                        .put("id", paste.id)
+                        .put("body", paste.body)
+                        .put("language", new JSONObject().put("name", language).put("id", language))
+                        .put("expiration", paste.expiration == null ? "-1" : paste.expiration)
+                        .put("encrypted", false)
+                        .toString());
+            } else {
+                send(exchange, 200, "text/html", "<pre>" + paste.body + "</pre>");
+            }
+            return;
+        }
+        if (path.startsWith("/api/info/")) {
+            StoredPaste paste = pastes.get(path.substring("/api/info/".length()));
+            if (paste == null) {
+                send(exchange, 404, "application/json", "{}");
+            } else {
+                send(exchange, 200, "application/json", new JSONObject()
+                        .put("binId", paste.id)
+                        .put("body", paste.body)
+                        .put("createdAt", DateTimeFormatter.RFC_1123_DATE_TIME.format(paste.createdAt))
+                        .put("expiresAt", DateTimeFormatter.RFC_1123_DATE_TIME.format(paste.createdAt.plusDays(7)))
+                        .toString());
+            }
+            return;
+        }
+        if (path.startsWith("/api/bin/")) {
+            StoredPaste paste = pastes.get(path.substring("/api/bin/".length()));
+            if (paste == null) {
+                send(exchange, 404, "application/json", "{}");
+            } else {
+                send(exchange, 200, "application/json", new JSONObject()
+                        .put("key", paste.id)
+                        .put("code", paste.body)
+                        .put("created", DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(paste.createdAt))
+                        .toString());
+            }
+            return;
+        }
+        send(exchange, 404, "text/plain", "Not found");
+    }
+
+    private String store(String body, String language, String expiration) {
+        String id = Long.toString(ids.incrementAndGet(), 36);
+        pastes.put(id, new StoredPaste(id, body, language, expiration, OffsetDateTime.now(ZoneOffset.UTC)));
+        return id;
+    }
+
+    private void sleep() {
+        long millis = latency.toMillis();
+        if (!latencyJitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(latencyJitter.toMillis() + 1);
+        }
+        sleep(millis);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (compression && bytes.length > 0 && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        switch (contentEncoding) {
+            case "gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                return new InflaterInputStream(in);
+            default:
+                throw new IOException("Unsupported content encoding: " + contentEncoding);
+        }
+    }
+
+    /**
+     * Reads the rest of a request body, which isn't needed, so the client doesn't see the connection closed while it
+     * is still sending it, which it can't recover from for one-shot bodies.
+     */
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // discarded
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseForm(String body) throws UnsupportedEncodingException {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            form.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return form;
+    }
+
+    private static final class StoredPaste {
+
+        private final String id;
+        private final String body;
+        private final String language;
+        private final String expiration;
+        private final OffsetDateTime createdAt;
+
+        StoredPaste(String id, String body, String language, String expiration, OffsetDateTime createdAt) {
+            this.id = id;
+            this.body = body;
+            this.language = language;
+            this.expiration = expiration;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Represents a response, answering a single request regardless of its path
+     */
+    public static final class Scripted {
+
+        private final int code;
+        private final Headers headers = new Headers();
+        private byte[] body = new byte[0];
+        private Duration delay = Duration.ZERO;
+
+        private Scripted(int code) {
+            this.code = code;
+        }
+
+        /**
+         * Creates a new scripted response with the specified status code and an empty body
+         *
+         * @param code status code
+         * @return scripted response
+         */
+        public static Scripted status(int code) {
+            return new Scripted(code);
+        }
+
+        /**
+         * Adds a header. A header added more than once is sent repeatedly.
+         *
+         * @param name  header name
+         * @param value header value
+         * @return this instance for chaining
+         */
+        public Scripted header(String name, String value) {
+            headers.add(name, value);
+            return this;
+        }
+
+        /**
+         * Sets the body, sent as plain text
+         *
+         * @param body body
+         * @return this instance for chaining
+         */
+        public Scripted body(String body) {
+            return body(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Sets the body, sent as is
+         *
+         * @param body body
+         * @return this instance for chaining
+         */
+        public Scripted body(byte[] body) {
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * Sets the time, waited for before the response is sent
+         *
+         * @param delay delay
+         * @return this instance for chaining
+         */
+        public Scripted delay(Duration delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        private void send(HttpExchange exchange) throws IOException {
+            sleep(delay.toMillis());
+            exchange.getResponseHeaders().putAll(headers);
+            if (!headers.containsKey("Content-Type")) {
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            }
+            exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * Represents a builder of {@link MockBinServer}
+     */
+    public static final class Builder {
+
+        private int port;
+        private Duration latency = Duration.ZERO;
+        private Duration latencyJitter = Duration.ZERO;
+        private double errorRate;
+        private int maxRequestsPerSecond;
+        private boolean compression;
+        private int maxPasteSize;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the port to listen on. Defaults to a random free port.
+         *
+         * @param port port
+         * @return this instance for chaining
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the latency, added to every response
+         *
+         * @param latency latency
+         * @return this instance for chaining
+         */
+        public Builder latency(Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Sets the maximum random latency, added on top of the fixed latency
+         *
+         * @param latencyJitter latency jitter
+         * @return this instance for chaining
+         */
+        public Builder latencyJitter(Duration latencyJitter) {
+            this.latencyJitter = latencyJitter;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of requests, answered with status 500
+         *
+         * @param errorRate error rate, between 0 and 1
+         * @return this instance for chaining
+         */
+        public Builder errorRate(double errorRate) {
+            if (errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("errorRate not between 0 and 1: " + errorRate);
+            }
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of requests per second. Requests above it are answered with status 429 and a
+         * <code>Retry-After</code> header. 0 disables throttling.
+         *
+         * @param maxRequestsPerSecond max requests per second
+         * @return this instance for chaining
+         */
+        public Builder maxRequestsPerSecond(int maxRequestsPerSecond) {
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets whenever gzip and deflate compressed request bodies are accepted and responses are gzip compressed for
+         * clients accepting it. Defaults to <code>false</code>, refusing compressed request bodies with status 415.
+         *
+         * @param compression compression
+         * @return this instance for chaining
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Sets the maximum length of request bodies in characters. Longer ones are answered with status 413. 0, the
+         * default, doesn't limit them.
+         *
+         * @param maxPasteSize max paste size
+         * @return this instance for chaining
+         */
+        public Builder maxPasteSize(int maxPasteSize) {
+            this.maxPasteSize = maxPasteSize;
+            return this;
+        }
+
+        /**
+         * Starts the server
+         *
+         * @return running server
+         * @throws IOException if the server could not be bound
+         */
+        public MockBinServer start() throws IOException {
+            return new MockBinServer(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.mock;
+
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.service.PasteService;
+import com.mrivanplays.binclient.service.PasteServiceProvider;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * A {@link PasteServiceProvider}, registered for tests, creating haste servers pointed at a {@link MockBinServer}.
+ */
+public final class MockServiceProvider implements PasteServiceProvider {
+
+    private static volatile String baseUrl;
+
+    /**
+     * Sets the base url of the servers created from now on
+     *
+     * @param baseUrl base url
+     */
+    public static void setBaseUrl(String baseUrl) {
+        MockServiceProvider.baseUrl = baseUrl;
+    }
+
+    @Override
+    public String getName() {
+        return "mock";
+    }
+
+    @Override
+    public PasteService<?> create(OkHttpClient client) {
+        return new HasteServer(client, baseUrl);
+    }
+}
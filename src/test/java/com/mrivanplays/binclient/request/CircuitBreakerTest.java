@@ -0,0 +1,136 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    private long now;
+
+    private CircuitBreaker breaker(int probeCalls) {
+        return CircuitBreaker.builder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .slowCallRateThreshold(0.75)
+                .slowCallDuration(Duration.ofSeconds(5))
+                .openDuration(Duration.ofSeconds(30))
+                .probeCalls(probeCalls)
+                .nanoTime(() -> now)
+                .build();
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = breaker(2);
+        breaker.onSuccess(breaker.tryAcquirePermission(), FAST);
+        breaker.onFailure(breaker.tryAcquirePermission(), FAST);
+        breaker.onSuccess(breaker.tryAcquirePermission(), FAST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure(breaker.tryAcquirePermission(), FAST);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(-1, breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        CircuitBreaker breaker = breaker(2);
+        breaker.onSuccess(breaker.tryAcquirePermission(), FAST);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(breaker.tryAcquirePermission(), SLOW);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbes() {
+        CircuitBreaker breaker = open(breaker(2));
+        now += TimeUnit.SECONDS.toNanos(29);
+        Assert.assertEquals(-1, breaker.tryAcquirePermission());
+        now += TimeUnit.SECONDS.toNanos(1);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        long first = breaker.tryAcquirePermission();
+        long second = breaker.tryAcquirePermission();
+        Assert.assertTrue(first >= 0 && second >= 0);
+        Assert.assertEquals(-1, breaker.tryAcquirePermission());
+        // a cancelled probe gives its slot back
+        breaker.releasePermission(second);
+        second = breaker.tryAcquirePermission();
+        Assert.assertTrue(second >= 0);
+
+        breaker.onSuccess(first, FAST);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second, FAST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbesReopen() {
+        CircuitBreaker breaker = open(breaker(2));
+        now += TimeUnit.SECONDS.toNanos(30);
+        long first = breaker.tryAcquirePermission();
+        long second = breaker.tryAcquirePermission();
+        breaker.onSuccess(first, FAST);
+        breaker.onFailure(second, FAST);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(-1, breaker.tryAcquirePermission());
+        now += TimeUnit.SECONDS.toNanos(30);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testLateCallsAreNotCountedAsProbes() {
+        CircuitBreaker breaker = breaker(2);
+        // permitted while closed, but completing only after the breaker turned half-open
+        long late = breaker.tryAcquirePermission();
+        open(breaker);
+        now += TimeUnit.SECONDS.toNanos(30);
+        long probe = breaker.tryAcquirePermission();
+
+        breaker.onFailure(late, SLOW);
+        breaker.releasePermission(late);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquirePermission() >= 0);
+        Assert.assertEquals(-1, breaker.tryAcquirePermission());
+
+        breaker.onSuccess(probe, FAST);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private static CircuitBreaker open(CircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(breaker.tryAcquirePermission(), FAST);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class HedgePolicyTest {
+
+    @Test
+    public void testDelayRecomputedFromPercentile() {
+        HedgePolicy policy = HedgePolicy.builder()
+                .percentile(0.5)
+                .minDelay(Duration.ofMillis(1))
+                .maxDelay(Duration.ofSeconds(1))
+                .initialDelay(Duration.ofMillis(500))
+                .minSamples(20)
+                .build();
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), policy.getDelayNanos());
+        for (int i = 1; i < 20; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), policy.getDelayNanos());
+        policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getDelayNanos());
+
+        // then recomputed only every 32 samples
+        for (int i = 21; i < 52; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getDelayNanos());
+        policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(52));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(26), policy.getDelayNanos());
+
+        for (int i = 0; i < 64; i++) {
+            policy.recordLatency(TimeUnit.SECONDS.toNanos(10));
+        }
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(1), policy.getDelayNanos());
+    }
+
+    @Test
+    public void testMaxExtraLoad() {
+        HedgePolicy policy = HedgePolicy.builder().maxExtraLoad(0.1).build();
+        Assert.assertFalse(policy.tryAcquireHedge());
+        for (int i = 0; i < 10; i++) {
+            policy.onRequest();
+        }
+        Assert.assertTrue(policy.tryAcquireHedge());
+        Assert.assertFalse(policy.tryAcquireHedge());
+        for (int i = 0; i < 10; i++) {
+            policy.onRequest();
+        }
+        Assert.assertTrue(policy.tryAcquireHedge());
+        Assert.assertFalse(policy.tryAcquireHedge());
+        Assert.assertEquals(2, policy.getHedgeCount());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.FormBody;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+public class PasteBodiesTest {
+
+    private static final String ASCII;
+
+    static {
+        StringBuilder ascii = new StringBuilder();
+        for (char c = 0; c < 0x80; c++) {
+            ascii.append(c);
+        }
+        ASCII = ascii.toString();
+    }
+
+    @Test
+    public void testFormEncodingMatchesUrlEncoder() throws IOException {
+        String[] values = {
+                "",
+                "Hello, world!",
+                "a b+c=d&e%20f",
+                ASCII,
+                "café ü € 😀",
+                // unpaired surrogates are replaced by '?'
+                "x\ud800y\udc00z",
+        };
+        for (String value : values) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("lang", "c++ & java");
+            fields.put("exp ire", value);
+            assertEncoding(fields, "te xt", value);
+        }
+    }
+
+    @Test
+    public void testFormEncodingAcrossBufferBoundaries() throws IOException {
+        // multi byte characters at every offset around the 8 KiB chunks of the encoder
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 40_000) {
+            value.append("abé €😀+%");
+        }
+        assertEncoding(new LinkedHashMap<>(), "text", value.toString());
+    }
+
+    private static void assertEncoding(Map<String, String> fields, String name, String value) throws IOException {
+        StringBuilder expected = new StringBuilder();
+        FormBody.Builder form = new FormBody.Builder();
+        for (Map.Entry<String, String> entry : fields.entrySet()) {
+            expected.append(URLEncoder.encode(entry.getKey(), "UTF-8")).append('=')
+                    .append(URLEncoder.encode(entry.getValue(), "UTF-8")).append('&');
+            form.add(entry.getKey(), entry.getValue());
+        }
+        expected.append(URLEncoder.encode(name, "UTF-8")).append('=').append(URLEncoder.encode(value, "UTF-8"));
+        form.add(name, value);
+
+        RequestBody streamed = RequestBody.create(MediaType.get("text/plain; charset=utf-8"), value);
+        Buffer actual = new Buffer();
+        PasteBodies.formEncoded(fields, name, streamed).writeTo(actual);
+        Buffer formBody = new Buffer();
+        form.build().writeTo(formBody);
+
+        Assert.assertEquals(expected.toString(), actual.snapshot().utf8());
+        // okhttp spells spaces as %20 instead of +, but is otherwise identical
+        Assert.assertEquals(formBody.readUtf8(), actual.readUtf8().replace("+", "%20"));
+    }
+}
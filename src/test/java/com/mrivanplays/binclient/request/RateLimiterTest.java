@@ -0,0 +1,155 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testBurst() {
+        RateLimiter limiter = RateLimiter.create(10, 3, now::get);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testTryReserve() {
+        RateLimiter limiter = RateLimiter.create(10, 1, now::get);
+        Assert.assertEquals(0, limiter.tryReserve(0));
+        Assert.assertEquals(-1, limiter.tryReserve(INTERVAL - 1));
+        // the rejected reservation took nothing, so the next permit is still one interval away
+        Assert.assertEquals(INTERVAL, limiter.tryReserve(INTERVAL));
+        Assert.assertEquals(2 * INTERVAL, limiter.reserve());
+    }
+
+    @Test
+    public void testRefill() {
+        RateLimiter limiter = RateLimiter.create(10, 3, now::get);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+        }
+        now.addAndGet(INTERVAL / 2);
+        Assert.assertFalse(limiter.tryAcquire());
+        now.addAndGet(INTERVAL / 2);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+
+        // a long pause refills the bucket up to the burst only
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+        Assert.assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testReservationsUnderContention() throws Exception {
+        RateLimiter limiter = RateLimiter.create(10, 2, now::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    List<Long> waits = new ArrayList<>();
+                    for (int i = 0; i < 25; i++) {
+                        waits.add(limiter.reserve());
+                    }
+                    return waits;
+                }));
+            }
+            List<Long> waits = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                List<Long> own = result.get(10, TimeUnit.SECONDS);
+                // a thread's own reservations are handed out in order
+                List<Long> sorted = new ArrayList<>(own);
+                Collections.sort(sorted);
+                Assert.assertEquals(sorted, own);
+                waits.addAll(own);
+            }
+            // no reservation is lost or handed out twice: the burst is free, then one interval each
+            Collections.sort(waits);
+            Assert.assertEquals(0L, (long) waits.get(0));
+            Assert.assertEquals(0L, (long) waits.get(1));
+            for (int i = 2; i < waits.size(); i++) {
+                Assert.assertEquals((i - 1) * INTERVAL, (long) waits.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncWaitsInOrder() throws Exception {
+        RateLimiter limiter = RateLimiter.create(5, 1, now::get);
+        List<Integer> completed = new CopyOnWriteArrayList<>();
+        Assert.assertTrue(limiter.acquireAsync().isDone());
+        CompletableFuture<Void> second = limiter.acquireAsync().thenRun(() -> completed.add(2));
+        CompletableFuture<Void> third = limiter.acquireAsync().thenRun(() -> completed.add(3));
+        Assert.assertFalse(second.isDone());
+        Assert.assertFalse(third.isDone());
+        CompletableFuture.allOf(second, third).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, (int) completed.get(0));
+        Assert.assertEquals(3, (int) completed.get(1));
+    }
+
+    @Test
+    public void testBlockedCallbackDoesNotStallOtherWaiters() throws Exception {
+        RateLimiter limiter = RateLimiter.create(10, 1);
+        limiter.reserve();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocked = limiter.acquireAsync().thenRun(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            // would time out if the first waiter's callback ran on the scheduler thread
+            limiter.acquireAsync().get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,403 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import com.mrivanplays.binclient.mock.MockBinServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+public class RestRequestTest {
+
+    private MockBinServer mock;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        mock = MockBinServer.builder().start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        mock.close();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void testFuture() throws Exception {
+        String key = create("Hello, world!");
+        Assert.assertEquals("Hello, world!", retrieve(key).future().get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, mock.getRequestCount());
+    }
+
+    @Test
+    public void testFutureFailure() throws Exception {
+        mock.enqueue(MockBinServer.Scripted.status(404));
+        try {
+            retrieve("a").future().get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the finisher to reject the response");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        String closedBaseUrl;
+        try (MockBinServer closed = MockBinServer.builder().start()) {
+            closedBaseUrl = closed.getBaseUrl();
+        }
+        Request request = new Request.Builder().url(closedBaseUrl + "raw/a").build();
+        try {
+            new RestRequest<>(request, client, response -> response.code()).retry(RetryPolicy.none()).future().get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the call to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testCancelCancelsCall() throws Exception {
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        mock.enqueue(MockBinServer.Scripted.status(200).body("slow").delay(Duration.ofSeconds(5)));
+        CompletableFuture<String> future = retrieve(recordingClient(calls), "a").future();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mock.getRequestCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(calls.get(0).isCanceled());
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        String key = create("Hello, world!");
+        CompletableFuture<String> result = new CompletableFuture<>();
+        retrieve(key).async(result::complete, result::completeExceptionally);
+        Assert.assertEquals("Hello, world!", result.get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        mock.enqueue(MockBinServer.Scripted.status(500));
+        retrieve(key).retry(RetryPolicy.none()).async(failed::complete, failed::completeExceptionally);
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the failure handler to be called");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testRetriesAfterRetryAfter() throws Exception {
+        String key = create("Hello, world!");
+        mock.enqueue(MockBinServer.Scripted.status(503).header("Retry-After", "1"));
+        long start = System.nanoTime();
+        Assert.assertEquals("Hello, world!", retrieve(key).sync());
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        Assert.assertEquals(3, mock.getRequestCount());
+
+        mock.enqueue(MockBinServer.Scripted.status(503).header("Retry-After", "1"));
+        Assert.assertEquals("Hello, world!", retrieve(key).future().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(5, mock.getRequestCount());
+    }
+
+    @Test
+    public void testNonIdempotentNotRetriedByDefault() throws Exception {
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals(503, (int) post(RequestBody.create(MediaType.parse("text/plain"), "Hello")).sync());
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals(503, (int) post(RequestBody.create(MediaType.parse("text/plain"), "Hello")).future().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, mock.getRequestCount());
+        Assert.assertEquals(0, mock.getPasteCount());
+    }
+
+    @Test
+    public void testOneShotBodySentOnce() throws Exception {
+        RetryPolicy policy = RetryPolicy.builder().initialBackoff(Duration.ofMillis(10)).build();
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals(503, (int) post(new OneShotBody("Hello")).retry(policy).sync());
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals(503, (int) post(new OneShotBody("Hello")).retry(policy).future().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, mock.getRequestCount());
+
+        // the same policy does retry bodies, which can be written again
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals(200, (int) post(RequestBody.create(MediaType.parse("text/plain"), "Hello")).retry(policy).sync());
+        Assert.assertEquals(4, mock.getRequestCount());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        String key = create("Hello, world!");
+        RateLimiter limiter = RateLimiter.create(5, 1);
+        long start = System.nanoTime();
+        Assert.assertEquals("Hello, world!", retrieve(key).rateLimit(limiter).sync());
+        Assert.assertEquals("Hello, world!", retrieve(key).rateLimit(limiter).sync());
+        Assert.assertEquals("Hello, world!", retrieve(key).rateLimit(limiter).future().get(5, TimeUnit.SECONDS));
+        // the first request takes the burst, the other two wait an interval each
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(350));
+        Assert.assertEquals(4, mock.getRequestCount());
+    }
+
+    @Test
+    public void testHedgeCancelsLoser() throws Exception {
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        OkHttpClient recordingClient = recordingClient(calls);
+        HedgePolicy policy = HedgePolicy.builder().initialDelay(Duration.ofMillis(100)).maxExtraLoad(1).build();
+        String key = create("Hello, world!");
+
+        Assert.assertEquals("Hello, world!", retrieve(recordingClient, key).hedge(policy).future().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, policy.getHedgeCount());
+        calls.clear();
+
+        mock.enqueue(MockBinServer.Scripted.status(200).body("slow").delay(Duration.ofSeconds(3)));
+        long start = System.nanoTime();
+        Assert.assertEquals("Hello, world!", retrieve(recordingClient, key).hedge(policy).future().get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        Assert.assertEquals(1, policy.getHedgeCount());
+        Assert.assertEquals(2, calls.size());
+        Assert.assertTrue("slow call not cancelled", calls.get(0).isCanceled());
+        Assert.assertFalse(calls.get(1).isCanceled());
+        Assert.assertEquals(4, mock.getRequestCount());
+    }
+
+    @Test
+    public void testListener() throws Exception {
+        Queue<RequestMetrics> metrics = new ConcurrentLinkedQueue<>();
+        String key = create("Hello, world!");
+        RetryPolicy policy = RetryPolicy.builder().initialBackoff(Duration.ofMillis(10)).build();
+        mock.enqueue(MockBinServer.Scripted.status(503));
+        Assert.assertEquals("Hello, world!", retrieve(key).retry(policy).operation("test", "retrieve").listener(metrics::add).sync());
+        RequestMetrics retried = metrics.poll();
+        Assert.assertNotNull(retried);
+        Assert.assertEquals("test", retried.getServer());
+        Assert.assertEquals("retrieve", retried.getOperation());
+        Assert.assertEquals("GET", retried.getMethod());
+        Assert.assertEquals(200, retried.getStatusCode());
+        Assert.assertEquals(2, retried.getAttempts());
+        Assert.assertEquals(1, retried.getRetries());
+        Assert.assertTrue(retried.isSuccessful());
+        Assert.assertNull(retried.getError());
+
+        mock.enqueue(MockBinServer.Scripted.status(404));
+        try {
+            retrieve(key).operation("test", "retrieve").listener(metrics::add).future().get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the finisher to reject the response");
+        } catch (ExecutionException expected) {
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        RequestMetrics failed = metrics.poll();
+        Assert.assertNotNull(failed);
+        Assert.assertEquals(404, failed.getStatusCode());
+        Assert.assertEquals(1, failed.getAttempts());
+        Assert.assertFalse(failed.isSuccessful());
+        Assert.assertTrue(failed.getError() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testDeadlineTimeoutsOpenCircuitBreaker() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.builder().windowSize(2).minimumCalls(2).build();
+        mock.enqueue(MockBinServer.Scripted.status(200).body("hanging").delay(Duration.ofSeconds(2)));
+        mock.enqueue(MockBinServer.Scripted.status(200).body("hanging").delay(Duration.ofSeconds(2)));
+        try {
+            retrieve("a").circuitBreaker(breaker).future(Duration.ofMillis(200)).get(10, TimeUnit.SECONDS);
+            Assert.fail("Expected the deadline to pass");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+        try {
+            retrieve("a").circuitBreaker(breaker).sync(Duration.ofMillis(200));
+            Assert.fail("Expected the deadline to pass");
+        } catch (RequestException e) {
+            Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testCancellationReleasesPermit() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.builder().windowSize(2).minimumCalls(2).build();
+        for (int i = 0; i < 2; i++) {
+            mock.enqueue(MockBinServer.Scripted.status(200).body("hanging").delay(Duration.ofSeconds(2)));
+            CompletableFuture<String> future = retrieve("a").circuitBreaker(breaker).future();
+            Thread.sleep(100);
+            future.cancel(true);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testDeadlineBeforePermitTakesNoPermit() throws Exception {
+        RateLimiter limiter = RateLimiter.create(1, 1);
+        String key = create("Hello, world!");
+        Assert.assertEquals("Hello, world!", retrieve(key).rateLimit(limiter).sync());
+        for (int i = 0; i < 3; i++) {
+            try {
+                retrieve(key).rateLimit(limiter).sync(Duration.ofMillis(100));
+                Assert.fail("Expected the deadline to pass before a permit is available");
+            } catch (RequestException e) {
+                Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+            try {
+                retrieve(key).rateLimit(limiter).future(Duration.ofMillis(100)).get(10, TimeUnit.SECONDS);
+                Assert.fail("Expected the deadline to pass before a permit is available");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+        }
+        Assert.assertTrue(limiter.reserve() <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testStackedContentEncodings() throws Exception {
+        OkHttpClient compressingClient = CompressionInterceptor.install(client);
+        Assert.assertSame(compressingClient, CompressionInterceptor.install(compressingClient));
+        byte[] body = deflate(gzip("Hello, world!".getBytes(StandardCharsets.UTF_8)));
+
+        mock.enqueue(MockBinServer.Scripted.status(200).header("Content-Encoding", "gzip, deflate").body(body));
+        Assert.assertEquals("Hello, world!", retrieve(compressingClient, "a").compression(Compression.gzip()).sync());
+        mock.enqueue(MockBinServer.Scripted.status(200)
+                .header("Content-Encoding", "gzip")
+                .header("Content-Encoding", "deflate")
+                .body(body));
+        Assert.assertEquals("Hello, world!", retrieve(compressingClient, "a").compression(Compression.gzip()).sync());
+
+        // an encoding which can't be decoded leaves the response as is
+        mock.enqueue(MockBinServer.Scripted.status(200).header("Content-Encoding", "gzip, br").body("encoded"));
+        Assert.assertEquals("encoded", retrieve(compressingClient, "a").compression(Compression.gzip()).sync());
+    }
+
+    private OkHttpClient recordingClient(List<Call> calls) {
+        return client.newBuilder()
+                .eventListenerFactory(call -> {
+                    calls.add(call);
+                    return EventListener.NONE;
+                })
+                .build();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private String create(String body) {
+        Request request = new Request.Builder()
+                .url(mock.getBaseUrl() + "documents")
+                .post(RequestBody.create(MediaType.parse("text/plain"), body))
+                .build();
+        return new RestRequest<>(request, client, response -> {
+            try {
+                return new JSONObject(response.body().string()).getString("key");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).sync();
+    }
+
+    private RestRequest<String> retrieve(String key) {
+        return retrieve(client, key);
+    }
+
+    private RestRequest<String> retrieve(OkHttpClient client, String key) {
+        Request request = new Request.Builder().url(mock.getBaseUrl() + "raw/" + key).build();
+        return new RestRequest<>(request, client, response -> {
+            if (response.code() != 200) {
+                throw new IllegalStateException("Status code " + response.code());
+            }
+            try {
+                return response.body().string();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private RestRequest<Integer> post(RequestBody body) {
+        Request request = new Request.Builder().url(mock.getBaseUrl() + "documents").post(body).build();
+        return new RestRequest<>(request, client, response -> response.code());
+    }
+
+    private static final class OneShotBody extends RequestBody {
+
+        private final String body;
+
+        OneShotBody(String body) {
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.parse("text/plain");
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.writeUtf8(body);
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+    }
+}
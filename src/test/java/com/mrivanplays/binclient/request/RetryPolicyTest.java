@@ -0,0 +1,100 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testEqualJitterBounds() {
+        RetryPolicy policy = RetryPolicy.builder()
+                .maxAttempts(10)
+                .initialBackoff(Duration.ofMillis(100))
+                .maxBackoff(Duration.ofMillis(1000))
+                .build();
+        long[] backoffs = {100, 200, 400, 800, 1000, 1000};
+        for (int attempt = 1; attempt <= backoffs.length; attempt++) {
+            long backoff = backoffs[attempt - 1];
+            for (int i = 0; i < 1000; i++) {
+                long delay = policy.delayMillis(attempt, null);
+                Assert.assertTrue("attempt " + attempt + ": " + delay, delay >= backoff / 2 && delay <= backoff);
+            }
+        }
+        Assert.assertEquals(-1, policy.delayMillis(10, null));
+    }
+
+    @Test
+    public void testRetryAfterSeconds() {
+        RetryPolicy policy = RetryPolicy.defaults();
+        Assert.assertEquals(2000, policy.delayMillis(1, response(503, "2")));
+        Assert.assertEquals(0, policy.delayMillis(1, response(503, "-5")));
+        // above maxRetryAfter, including values overflowing when converted to milliseconds
+        Assert.assertEquals(-1, policy.delayMillis(1, response(503, "60")));
+        Assert.assertEquals(-1, policy.delayMillis(1, response(503, "9223372036854775")));
+        Assert.assertEquals(-1, policy.delayMillis(1, response(503, Long.toString(Long.MAX_VALUE))));
+    }
+
+    @Test
+    public void testRetryAfterDate() {
+        RetryPolicy policy = RetryPolicy.defaults();
+        String in10Seconds = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(10));
+        long delay = policy.delayMillis(1, response(429, in10Seconds));
+        Assert.assertTrue(Long.toString(delay), delay > 8000 && delay <= 10000);
+
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(1));
+        Assert.assertEquals(0, policy.delayMillis(1, response(429, past)));
+    }
+
+    @Test
+    public void testStatusCodes() {
+        RetryPolicy policy = RetryPolicy.defaults();
+        Assert.assertEquals(-1, policy.delayMillis(1, response(404, null)));
+        // unparseable Retry-After falls back to the backoff
+        long delay = policy.delayMillis(1, response(503, "soon"));
+        Assert.assertTrue(Long.toString(delay), delay >= 100 && delay <= 200);
+        Assert.assertEquals(-1, RetryPolicy.none().delayMillis(1, response(503, "1")));
+    }
+
+    private static Response response(int code, String retryAfter) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("");
+        if (retryAfter != null) {
+            builder.header("Retry-After", retryAfter);
+        }
+        return builder.build();
+    }
+}
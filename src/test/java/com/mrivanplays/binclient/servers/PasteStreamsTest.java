@@ -0,0 +1,65 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.servers;
+
+import com.mrivanplays.binclient.request.RequestException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+public class PasteStreamsTest {
+
+    @Test
+    public void testCopy() {
+        byte[] body = new byte[20000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(body.length, PasteStreams.copy(new ByteArrayInputStream(body), out));
+        Assert.assertArrayEquals(body, out.toByteArray());
+    }
+
+    @Test
+    public void testCopyJsonField() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = PasteStreams.copyJsonField(json("{\"key\":\"abc\",\"content\":\"caf\\u00e9\\n\"}"), "content", out);
+        byte[] expected = "caf\u00e9\n".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(expected.length, written);
+        Assert.assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test(expected = RequestException.class)
+    public void testCopyJsonFieldMissing() {
+        PasteStreams.copyJsonField(json("{\"key\":\"abc\"}"), "content", new ByteArrayOutputStream());
+    }
+
+    private static Reader json(String json) {
+        return new StringReader(json);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+    Copyright (c) 2019 Ivan Pekov
+    Copyright (c) 2019 Contributors
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+package com.mrivanplays.binclient.service;
+
+import com.mrivanplays.binclient.BinClient;
+import com.mrivanplays.binclient.servers.GhostbinServer;
+import com.mrivanplays.binclient.servers.HasteServer;
+import com.mrivanplays.binclient.servers.IvanBinServer;
+import com.mrivanplays.binclient.servers.SourcebinServer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import okhttp3.OkHttpClient;
+
+public class PasteServicesTest {
+
+    @Test
+    public void testBuiltInProviders() {
+        Set<String> names = new HashSet<>();
+        for (PasteServiceProvider provider : PasteServices.providers()) {
+            names.add(provider.getName());
+        }
+        Assert.assertTrue(names.toString(), names.contains("hastebin"));
+        Assert.assertTrue(names.toString(), names.contains("ghostbin"));
+        Assert.assertTrue(names.toString(), names.contains("ivanbin"));
+        Assert.assertTrue(names.toString(), names.contains("sourcebin"));
+    }
+
+    @Test
+    public void testCreateByName() {
+        OkHttpClient client = new OkHttpClient();
+        Assert.assertTrue(PasteServices.create("hastebin", client) instanceof HasteServer);
+        Assert.assertTrue(PasteServices.create("ghostbin", client) instanceof GhostbinServer);
+        Assert.assertTrue(PasteServices.create("IvanBin", client) instanceof IvanBinServer);
+        Assert.assertTrue(PasteServices.create("sourcebin", client) instanceof SourcebinServer);
+        Assert.assertEquals("hastebin", PasteServices.create("hastebin", client).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownName() {
+        PasteServices.create("pastebin", new OkHttpClient());
+    }
+
+    @Test
+    public void testBinClientService() {
+        BinClient binClient = BinClient.builder().build();
+        try {
+            Assert.assertTrue(binClient.service("hastebin") instanceof HasteServer);
+        } finally {
+            binClient.shutdown();
+        }
+    }
+}